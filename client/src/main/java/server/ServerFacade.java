@@ -1,6 +1,6 @@
 package server;
 
-import com.google.gson.Gson;
+import chess.GsonFactory;
 import com.google.gson.JsonObject;
 import exception.ResponseException;
 import model.GameData;
@@ -101,7 +101,7 @@ public class ServerFacade {
     private static void writeBody(Object request, HttpURLConnection http) throws IOException {
         if (request != null) {
             http.addRequestProperty("Content-type", "application/json");
-            String reqData = new Gson().toJson(request);
+            String reqData = GsonFactory.gson().toJson(request);
             try (OutputStream reqBody = http.getOutputStream()) {
                 reqBody.write(reqData.getBytes());
             }
@@ -133,7 +133,7 @@ public class ServerFacade {
             try (InputStream respBody = http.getInputStream()) {
                 InputStreamReader reader = new InputStreamReader(respBody);
                 if (responseClass != null) {
-                    response = new Gson().fromJson(reader, responseClass);
+                    response = GsonFactory.gson().fromJson(reader, responseClass);
                 }
             }
         }
@@ -142,8 +142,7 @@ public class ServerFacade {
 
     private String parseErrorMessage(String response) {
         try {
-            Gson gson = new Gson();
-            JsonObject json = gson.fromJson(response, JsonObject.class);
+            JsonObject json = GsonFactory.gson().fromJson(response, JsonObject.class);
 
             if (json.has("message")) {
                 return json.get("message").getAsString();
@@ -5,8 +5,6 @@ import chess.*;
 import java.io.PrintStream;
 import java.lang.reflect.Array;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 import static ui.EscapeSequences.*;
@@ -95,18 +93,20 @@ public class BoardDrawer {
     }
 
     private static void drawChessBoard(PrintStream out, ChessBoard board, boolean flipped, ChessPosition position) {
+        long legalTargets = getLegalTargets(position, board);
         if (flipped) {
             for (int boardRow = BOARD_SIZE_IN_SQUARES - 1; boardRow >= 0; --boardRow) {
-                drawRowOfSquares(out, boardRow, board, flipped, position);
+                drawRowOfSquares(out, boardRow, board, flipped, position, legalTargets);
             }
         } else {
             for (int boardRow = 0; boardRow < BOARD_SIZE_IN_SQUARES; ++boardRow) {
-                drawRowOfSquares(out, boardRow, board, flipped, position);
+                drawRowOfSquares(out, boardRow, board, flipped, position, legalTargets);
             }
         }
     }
 
-    private static void drawRowOfSquares(PrintStream out, int boardRow, ChessBoard board, boolean flipped, ChessPosition selectedPosition) {
+    private static void drawRowOfSquares(PrintStream out, int boardRow, ChessBoard board, boolean flipped,
+                                         ChessPosition selectedPosition, long legalTargets) {
         int rowNumber = flipped ? (8 - boardRow) : (BOARD_SIZE_IN_SQUARES - boardRow);
 
         out.print(SET_BG_COLOR_BLACK);
@@ -118,13 +118,12 @@ public class BoardDrawer {
 
             boolean isLightSquare = (boardRow + actualCol) % 2 == 0;
 
-            ChessPosition position = new ChessPosition(BOARD_SIZE_IN_SQUARES - boardRow, actualCol + 1);
+            ChessPosition position = ChessPosition.of(BOARD_SIZE_IN_SQUARES - boardRow, actualCol + 1);
             ChessPiece piece = board.getPiece(position);
             String pieceSymbol = getPieceSymbol(piece);
 
-            Collection<ChessPosition> legalMoves = getLegalMoves(selectedPosition, board);
             boolean isStartingPosition = position.equals(selectedPosition) && piece != null;
-            boolean isLegalMove = legalMoves != null && legalMoves.contains(position);
+            boolean isLegalMove = (legalTargets & (1L << Bitboards.square(position))) != 0;
 
             printPiece(out, pieceSymbol, isLightSquare, isStartingPosition, isLegalMove);
         }
@@ -161,22 +160,15 @@ public class BoardDrawer {
         }
     }
 
-    private static Collection<ChessPosition> getLegalMoves(ChessPosition startPosition, ChessBoard board) {
-        ChessGame currentGame = new ChessGame(board);
-        Collection<ChessPosition> legalMoves = new ArrayList<>();
+    // The squares the selected piece can move to, worked out once for the whole board
+    private static long getLegalTargets(ChessPosition startPosition, ChessBoard board) {
         if (startPosition == null) {
-            return null;
+            return 0;
         }
         ChessPiece piece = board.getPiece(startPosition);
         if (piece == null) {
-            return null;
+            return 0;
         }
-        Collection<ChessMove> moves = piece.pieceMoves(board, startPosition);
-        for (ChessMove move : moves) {
-            if (currentGame.isValidMove(move)) {
-                legalMoves.add(move.getEndPosition());
-            }
-        }
-        return legalMoves;
+        return new MoveGenerator(board, piece.getTeamColor()).legalTargets(Bitboards.square(startPosition));
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package websocket;
 
 import chess.ChessMove;
+import chess.GsonFactory;
 import com.google.gson.Gson;
 import exception.ResponseException;
 import websocket.commands.UserGameCommand;
@@ -15,7 +16,7 @@ public class WebSocketServerFacade extends Endpoint {
     private final Session session;
     private final NotificationHandler notificationHandler;
     private final String authToken;
-    private final Gson gson = new Gson();
+    private final Gson gson = GsonFactory.gson();
 
     public WebSocketServerFacade(String url, String authToken, NotificationHandler notificationHandler) throws ResponseException {
         this.notificationHandler = notificationHandler;
@@ -31,7 +32,7 @@ public class WebSocketServerFacade extends Endpoint {
             this.session.addMessageHandler(new MessageHandler.Whole<String>() {
                 @Override
                 public void onMessage(String message) {
-                    ServerMessage notification = new Gson().fromJson(message, ServerMessage.class);
+                    ServerMessage notification = gson.fromJson(message, ServerMessage.class);
                     notificationHandler.notify(notification);
                 }
             });
@@ -48,7 +49,7 @@ public class WebSocketServerFacade extends Endpoint {
     public void connect(String authToken, int gameID) throws ResponseException {
         try {
             var command = new UserGameCommand(UserGameCommand.CommandType.CONNECT, authToken, gameID, null);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            this.session.getBasicRemote().sendText(gson.toJson(command));
         } catch (IOException ex) {
             throw new ResponseException(500, ex.getMessage());
         }
@@ -57,7 +58,7 @@ public class WebSocketServerFacade extends Endpoint {
     public void makeMove(String authToken, int gameID, ChessMove move) throws ResponseException {
         try {
             var command = new UserGameCommand(UserGameCommand.CommandType.MAKE_MOVE, authToken, gameID, move);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            this.session.getBasicRemote().sendText(gson.toJson(command));
         } catch (IOException ex) {
             throw new ResponseException(500, ex.getMessage());
         }
@@ -66,7 +67,7 @@ public class WebSocketServerFacade extends Endpoint {
     public void leave(String authToken, int gameID) throws ResponseException {
         try {
             var command = new UserGameCommand(UserGameCommand.CommandType.LEAVE, authToken, gameID, null);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            this.session.getBasicRemote().sendText(gson.toJson(command));
         } catch (IOException ex) {
             throw new ResponseException(500, ex.getMessage());
         }
@@ -75,7 +76,7 @@ public class WebSocketServerFacade extends Endpoint {
     public void resign(String authToken, int gameID) throws ResponseException {
         try {
             var command = new UserGameCommand(UserGameCommand.CommandType.RESIGN, authToken, gameID, null);
-            this.session.getBasicRemote().sendText(new Gson().toJson(command));
+            this.session.getBasicRemote().sendText(gson.toJson(command));
         } catch (IOException ex) {
             throw new ResponseException(500, ex.getMessage());
         }
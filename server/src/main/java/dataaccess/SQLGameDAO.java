@@ -1,6 +1,7 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.GsonFactory;
 import com.google.gson.Gson;
 import model.GameData;
 
@@ -17,7 +18,7 @@ public class SQLGameDAO implements GameDAO {
     private final Gson gson;
 
     public SQLGameDAO() {
-        this.gson = new Gson();
+        this.gson = GsonFactory.gson();
         try {
             DatabaseManager.getConnection();
         } catch (DataAccessException e) {
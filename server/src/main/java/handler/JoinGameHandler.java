@@ -1,5 +1,6 @@
 package handler;
 
+import chess.GsonFactory;
 import com.google.gson.Gson;
 import dataaccess.AlreadyTakenException;
 import dataaccess.DataAccessException;
@@ -16,7 +17,7 @@ public class JoinGameHandler implements Route {
     private final AuthService authService;
 
     public JoinGameHandler(GameService gameService, AuthService authService) {
-        gson = new Gson();
+        gson = GsonFactory.gson();
         this.gameService = gameService;
         this.authService = authService;
     }
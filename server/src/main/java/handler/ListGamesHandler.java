@@ -1,5 +1,6 @@
 package handler;
 
+import chess.GsonFactory;
 import com.google.gson.Gson;
 import dataaccess.DataAccessException;
 import dataaccess.UnauthorizedException;
@@ -15,7 +16,7 @@ public class ListGamesHandler implements Route{
     private final AuthService authService;
 
     public ListGamesHandler(GameService gameService, AuthService authService) {
-        gson = new Gson();
+        gson = GsonFactory.gson();
         this.gameService = gameService;
         this.authService = authService;
     }
@@ -1,5 +1,6 @@
 package handler;
 
+import chess.GsonFactory;
 import com.google.gson.Gson;
 import dataaccess.DataAccessException;
 import request.LoginRequest;
@@ -12,7 +13,7 @@ public class LoginHandler implements Route {
     private final UserService userService;
 
     public LoginHandler(UserService userService) {
-        gson = new Gson();
+        gson = GsonFactory.gson();
         this.userService = userService;
     }
     @Override
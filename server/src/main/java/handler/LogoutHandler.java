@@ -1,5 +1,6 @@
 package handler;
 
+import chess.GsonFactory;
 import com.google.gson.Gson;
 import dataaccess.DataAccessException;
 import result.LogoutResult;
@@ -11,7 +12,7 @@ public class LogoutHandler implements Route {
     private final AuthService authService;
 
     public LogoutHandler(AuthService authService) {
-        gson = new Gson();
+        gson = GsonFactory.gson();
         this.authService = authService;
     }
 
@@ -1,5 +1,6 @@
 package handler;
 
+import chess.GsonFactory;
 import com.google.gson.Gson;
 import dataaccess.DataAccessException;
 import request.RegisterRequest;
@@ -12,7 +13,7 @@ public class RegisterHandler implements Route {
     private final UserService userService;
 
     public RegisterHandler(UserService userService) {
-        gson = new Gson();
+        gson = GsonFactory.gson();
         this.userService = userService;
     }
 
@@ -2,6 +2,7 @@ package websocket;
 
 import chess.ChessGame;
 import chess.ChessMove;
+import chess.GsonFactory;
 import chess.InvalidMoveException;
 import com.google.gson.Gson;
 import dataaccess.DataAccessException;
@@ -21,12 +22,12 @@ import java.io.IOException;
 @WebSocket
 public class WebSocketHandler {
     private final ConnectionManager connections = new ConnectionManager();
-    private final Gson gson = new Gson();
+    private final Gson gson = GsonFactory.gson();
 
     @OnWebSocketMessage
     public void onMessage(Session session, String message) throws IOException {
         try {
-            UserGameCommand command = new Gson().fromJson(message, UserGameCommand.class);
+            UserGameCommand command = gson.fromJson(message, UserGameCommand.class);
 
             AuthService authService = ServiceLocator.getAuthService();
             GameService gameService = ServiceLocator.getGameService();
@@ -167,8 +168,12 @@ public class WebSocketHandler {
         }
 
         chessGame.makeMove(move);
+        ChessGame.GameStatus status = chessGame.getGameStatus(opponentColor);
 
         GameData updatedGame = game.withGame(chessGame);
+        if (status != ChessGame.GameStatus.NORMAL && status != ChessGame.GameStatus.CHECK) {
+            updatedGame = updatedGame.withGameOver(true);
+        }
 
         GameService gameService = ServiceLocator.getGameService();
         gameService.updateGame(game.gameID(), updatedGame);
@@ -177,20 +182,38 @@ public class WebSocketHandler {
         notification.setMessage(username + " made the move " + move.toString());
         connections.broadcast(command.getGameID(), command.getAuthToken(), serializeMessage(notification));
 
-        if (chessGame.isInCheckmate(opponentColor)) {
-            ServerMessage checkmateNotification = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
-            checkmateNotification.setMessage(username + " has won by checkmate!");
-            connections.broadcastToAll(command.getGameID(), serializeMessage(checkmateNotification));
-        } else if (chessGame.isInStalemate(opponentColor)) {
-            ServerMessage checkmateNotification = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
-            checkmateNotification.setMessage("Stalemate!");
-            connections.broadcastToAll(command.getGameID(), serializeMessage(checkmateNotification));
-        } else if (chessGame.isInCheck(opponentColor)) {
+        // A draw by repetition or the fifty-move rule can still leave the opponent in check
+        if (status != ChessGame.GameStatus.CHECKMATE && chessGame.isInCheck(opponentColor)) {
             ServerMessage checkNotification = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
             checkNotification.setMessage(opponentUsername + " is in check");
             connections.broadcastToAll(command.getGameID(), serializeMessage(checkNotification));
         }
 
+        switch (status) {
+            case CHECKMATE -> {
+                ServerMessage checkmateNotification = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
+                checkmateNotification.setMessage(username + " has won by checkmate!");
+                connections.broadcastToAll(command.getGameID(), serializeMessage(checkmateNotification));
+            }
+            case STALEMATE -> {
+                ServerMessage stalemateNotification = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
+                stalemateNotification.setMessage("Stalemate!");
+                connections.broadcastToAll(command.getGameID(), serializeMessage(stalemateNotification));
+            }
+            case REPETITION -> {
+                ServerMessage repetitionNotification = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
+                repetitionNotification.setMessage("Draw by threefold repetition!");
+                connections.broadcastToAll(command.getGameID(), serializeMessage(repetitionNotification));
+            }
+            case FIFTY_MOVE -> {
+                ServerMessage fiftyMoveNotification = new ServerMessage(ServerMessage.ServerMessageType.NOTIFICATION);
+                fiftyMoveNotification.setMessage("Draw by the fifty-move rule!");
+                connections.broadcastToAll(command.getGameID(), serializeMessage(fiftyMoveNotification));
+            }
+            case CHECK, NORMAL -> {
+            }
+        }
+
         ServerMessage loadGameMessage = new ServerMessage(ServerMessage.ServerMessageType.LOAD_GAME);
         loadGameMessage.setGame(chessGame);
         connections.broadcastToAll(command.getGameID(), serializeMessage(loadGameMessage));
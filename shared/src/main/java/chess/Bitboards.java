@@ -0,0 +1,221 @@
+package chess;
+
+/**
+ * Bitboard constants and attack helpers used by the board and move generation.
+ * <p>
+ * Squares are numbered 0-63 starting at row 1, column 1 (a1) and moving across
+ * each row, so square = (row - 1) * 8 + (column - 1).
+ */
+public final class Bitboards {
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_8 = RANK_1 << 56;
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    private static final int[][] KNIGHT_OFFSETS = {{2, 1}, {1, 2}, {-1, 2}, {-2, 1}, {-2, -1}, {-1, -2}, {1, -2}, {2, -1}};
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            int row = row(square);
+            int col = column(square);
+            for (int[] offset : KNIGHT_OFFSETS) {
+                KNIGHT_ATTACKS[square] |= bit(row + offset[0], col + offset[1]);
+            }
+            for (int rowStep = -1; rowStep <= 1; rowStep++) {
+                for (int colStep = -1; colStep <= 1; colStep++) {
+                    if (rowStep != 0 || colStep != 0) {
+                        KING_ATTACKS[square] |= bit(row + rowStep, col + colStep);
+                    }
+                }
+            }
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][square] = bit(row + 1, col - 1) | bit(row + 1, col + 1);
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][square] = bit(row - 1, col - 1) | bit(row - 1, col + 1);
+        }
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                fillLine(from, to);
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    public static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    public static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    public static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    public static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    public static ChessPosition position(int square) {
+        return ChessPosition.of(square);
+    }
+
+    public static int pieceIndex(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    public static long pawnAttacks(ChessGame.TeamColor color, int square) {
+        return PAWN_ATTACKS[color.ordinal()][square];
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return MagicBitboards.rookAttacks(square, occupied);
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return MagicBitboards.bishopAttacks(square, occupied);
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Gets the squares a pawn can push to, one square forward or two from its first row
+     */
+    public static long pawnPushes(ChessGame.TeamColor color, int square, long occupied) {
+        int firstRow = (color == ChessGame.TeamColor.WHITE) ? 2 : 7;
+        int step = (color == ChessGame.TeamColor.WHITE) ? 8 : -8;
+        int ahead1 = square + step;
+        if (ahead1 < 0 || ahead1 > 63 || (occupied & (1L << ahead1)) != 0) {
+            return 0;
+        }
+        long pushes = 1L << ahead1;
+        int ahead2 = ahead1 + step;
+        if (row(square) == firstRow && (occupied & (1L << ahead2)) == 0) {
+            pushes |= 1L << ahead2;
+        }
+        return pushes;
+    }
+
+    /**
+     * @return the squares strictly between two squares on the same row, column or
+     * diagonal, or 0 if they are not aligned
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * @return the whole row, column or diagonal through two aligned squares, or 0 if
+     * they are not aligned
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    /**
+     * Gets the squares a piece attacks from the given square. Pawn pushes are not
+     * included since they are not attacks.
+     */
+    public static long attacks(ChessPiece.PieceType type, ChessGame.TeamColor color, int square, long occupied) {
+        return switch (type) {
+            case KING -> kingAttacks(square);
+            case QUEEN -> queenAttacks(square, occupied);
+            case BISHOP -> bishopAttacks(square, occupied);
+            case KNIGHT -> knightAttacks(square);
+            case ROOK -> rookAttacks(square, occupied);
+            case PAWN -> pawnAttacks(color, square);
+        };
+    }
+
+    /**
+     * Gets the pieces of the attacking team that attack a square, by looking outward
+     * from the square with each piece's attack pattern
+     */
+    public static long attackersTo(ChessBoard board, int square, ChessGame.TeamColor attacker, long occupied) {
+        ChessGame.TeamColor defender = (attacker == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long queens = board.getPieces(attacker, ChessPiece.PieceType.QUEEN);
+        return (knightAttacks(square) & board.getPieces(attacker, ChessPiece.PieceType.KNIGHT))
+                | (kingAttacks(square) & board.getPieces(attacker, ChessPiece.PieceType.KING))
+                | (pawnAttacks(defender, square) & board.getPieces(attacker, ChessPiece.PieceType.PAWN))
+                | (rookAttacks(square, occupied) & (board.getPieces(attacker, ChessPiece.PieceType.ROOK) | queens))
+                | (bishopAttacks(square, occupied) & (board.getPieces(attacker, ChessPiece.PieceType.BISHOP) | queens));
+    }
+
+    public static boolean isSquareAttacked(ChessBoard board, int square, ChessGame.TeamColor attacker) {
+        return attackersTo(board, square, attacker, board.getOccupied()) != 0;
+    }
+
+    // Walks each ray until it leaves the board or hits a blocker. Only used to fill the magic tables.
+    static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0;
+        for (int[] direction : directions) {
+            int row = row(square) + direction[0];
+            int col = column(square) + direction[1];
+            while (row >= 1 && row <= 8 && col >= 1 && col <= 8) {
+                long target = 1L << square(row, col);
+                attacks |= target;
+                if ((occupied & target) != 0) {
+                    break;
+                }
+                row += direction[0];
+                col += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    private static void fillLine(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        int rowStep = Integer.signum(row(to) - row(from));
+        int colStep = Integer.signum(column(to) - column(from));
+        boolean straight = row(to) == row(from) || column(to) == column(from);
+        boolean diagonal = Math.abs(row(to) - row(from)) == Math.abs(column(to) - column(from));
+        if (!straight && !diagonal) {
+            return;
+        }
+        int row = row(from) + rowStep;
+        int col = column(from) + colStep;
+        while (square(row, col) != to) {
+            BETWEEN[from][to] |= 1L << square(row, col);
+            row += rowStep;
+            col += colStep;
+        }
+        long line = bit(row(from), column(from));
+        for (int sign = -1; sign <= 1; sign += 2) {
+            row = row(from) + rowStep * sign;
+            col = column(from) + colStep * sign;
+            while (bit(row, col) != 0) {
+                line |= bit(row, col);
+                row += rowStep * sign;
+                col += colStep * sign;
+            }
+        }
+        LINE[from][to] = line;
+    }
+
+    private static long bit(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return 0;
+        }
+        return 1L << square(row, col);
+    }
+}
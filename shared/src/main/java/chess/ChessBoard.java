@@ -12,11 +12,33 @@ import java.util.Objects;
  */
 public class ChessBoard {
     private ChessPiece[][] squares = new ChessPiece[8][8];
+    private transient long[] pieceBitboards;
+    private transient long[] colorBitboards;
+    private transient long occupied;
+    private transient long zobristKey;
+    private transient int middlegameScore;
+    private transient int endgameScore;
+    private transient int phase;
+    private transient PieceListener listener;
+
+    /**
+     * Told about every change to a square, so state derived from the board can be
+     * updated as pieces move instead of being rebuilt
+     */
+    public interface PieceListener {
+        void pieceChanged(int square, ChessPiece oldPiece, ChessPiece newPiece);
+    }
 
     public ChessBoard() {
 
     }
 
+    public ChessBoard(ChessBoard other) {
+        for (int row = 0; row < 8; row++) {
+            squares[row] = other.squares[row].clone();
+        }
+    }
+
     /**
      * Adds a chess piece to the chessboard
      *
@@ -24,7 +46,35 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        squares[position.getRow() - 1][position.getColumn() - 1] = piece;
+        addPiece(Bitboards.square(position), piece);
+    }
+
+    public void addPiece(int square, ChessPiece piece) {
+        ChessPiece oldPiece = squares[square >>> 3][square & 7];
+        squares[square >>> 3][square & 7] = piece;
+        if (pieceBitboards != null) {
+            if (oldPiece != null) {
+                removeFromIndex(oldPiece, square);
+            }
+            if (piece != null) {
+                addToIndex(piece, square);
+            }
+        }
+        if (listener != null) {
+            listener.pieceChanged(square, oldPiece, piece);
+        }
+    }
+
+    public PieceListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Sets the listener told about every change to a square, replacing any other.
+     * Copies of this board do not share the listener.
+     */
+    public void setListener(PieceListener listener) {
+        this.listener = listener;
     }
 
     /**
@@ -38,43 +88,79 @@ public class ChessBoard {
         return squares[position.getRow() - 1][position.getColumn() - 1];
     }
 
+    public ChessPiece getPiece(int square) {
+        return squares[square >>> 3][square & 7];
+    }
+
+    public long getPieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        indexPieces();
+        return pieceBitboards[Bitboards.pieceIndex(color, type)];
+    }
+
+    public long getPieces(ChessGame.TeamColor color) {
+        indexPieces();
+        return colorBitboards[color.ordinal()];
+    }
+
+    public long getOccupied() {
+        indexPieces();
+        return occupied;
+    }
+
+    /**
+     * @return the Zobrist key of the pieces on this board, kept up to date as pieces
+     * are added and moved
+     */
+    public long getZobristKey() {
+        indexPieces();
+        return zobristKey;
+    }
+
+    /**
+     * @return the middlegame piece-square score of the pieces on this board, white's
+     * minus black's, kept up to date as pieces are added and moved
+     */
+    public int getMiddlegameScore() {
+        indexPieces();
+        return middlegameScore;
+    }
+
+    /**
+     * @return the endgame piece-square score of the pieces on this board, white's
+     * minus black's
+     */
+    public int getEndgameScore() {
+        indexPieces();
+        return endgameScore;
+    }
+
+    /**
+     * @return how much material is left for weighting the middlegame and endgame
+     * scores, as described in {@link PieceSquareTables}
+     */
+    public int getPhase() {
+        indexPieces();
+        return phase;
+    }
+
     /**
      * Sets the board to the default starting board
      * (How the game of chess normally starts)
      */
     public void resetBoard() {
-        squares[0][0] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
-        squares[0][1] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
-        squares[0][2] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
-        squares[0][3] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN);
-        squares[0][4] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
-        squares[0][5] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
-        squares[0][6] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
-        squares[0][7] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
-        squares[1][0] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
-        squares[1][1] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
-        squares[1][2] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
-        squares[1][3] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
-        squares[1][4] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
-        squares[1][5] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
-        squares[1][6] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
-        squares[1][7] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
-        squares[7][0] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
-        squares[7][1] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
-        squares[7][2] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
-        squares[7][3] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN);
-        squares[7][4] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
-        squares[7][5] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
-        squares[7][6] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
-        squares[7][7] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
-        squares[6][0] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
-        squares[6][1] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
-        squares[6][2] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
-        squares[6][3] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
-        squares[6][4] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
-        squares[6][5] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
-        squares[6][6] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
-        squares[6][7] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
+        ChessPiece.PieceType[] backRow = {
+                ChessPiece.PieceType.ROOK, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.BISHOP,
+                ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.KING, ChessPiece.PieceType.BISHOP,
+                ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK
+        };
+        squares = new ChessPiece[8][8];
+        pieceBitboards = null;
+        for (int col = 1; col <= 8; col++) {
+            addPiece(ChessPosition.of(1, col), ChessPiece.of(ChessGame.TeamColor.WHITE, backRow[col - 1]));
+            addPiece(ChessPosition.of(2, col), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(7, col), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(8, col), ChessPiece.of(ChessGame.TeamColor.BLACK, backRow[col - 1]));
+        }
     }
 
     public void movePiece(ChessMove move) {
@@ -85,17 +171,61 @@ public class ChessBoard {
         addPiece(startPosition, null);
     }
 
+    // The bitboards are not serialized, so boards built by Gson rebuild them from squares on first use
+    private void indexPieces() {
+        if (pieceBitboards != null) {
+            return;
+        }
+        pieceBitboards = new long[12];
+        colorBitboards = new long[2];
+        occupied = 0;
+        zobristKey = 0;
+        middlegameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = squares[square >>> 3][square & 7];
+            if (piece != null) {
+                addToIndex(piece, square);
+            }
+        }
+    }
+
+    private void addToIndex(ChessPiece piece, int square) {
+        long mask = 1L << square;
+        int index = Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+        zobristKey ^= Zobrist.pieceKey(piece, square);
+        pieceBitboards[index] |= mask;
+        colorBitboards[piece.getTeamColor().ordinal()] |= mask;
+        occupied |= mask;
+        middlegameScore += PieceSquareTables.middlegame(index, square);
+        endgameScore += PieceSquareTables.endgame(index, square);
+        phase += PieceSquareTables.phase(piece.getPieceType());
+    }
+
+    private void removeFromIndex(ChessPiece piece, int square) {
+        long mask = 1L << square;
+        int index = Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+        zobristKey ^= Zobrist.pieceKey(piece, square);
+        pieceBitboards[index] &= ~mask;
+        colorBitboards[piece.getTeamColor().ordinal()] &= ~mask;
+        occupied &= ~mask;
+        middlegameScore -= PieceSquareTables.middlegame(index, square);
+        endgameScore -= PieceSquareTables.endgame(index, square);
+        phase -= PieceSquareTables.phase(piece.getPieceType());
+    }
+
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof ChessBoard that)) {
             return false;
         }
-        return Objects.deepEquals(squares, that.squares);
+        return getZobristKey() == that.getZobristKey() && Objects.deepEquals(squares, that.squares);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        return Long.hashCode(getZobristKey());
     }
 
     @Override
@@ -0,0 +1,105 @@
+package chess;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes a board as its FEN piece placement. Also reads the older form of an
+ * object holding the 8 by 8 squares array, with a color and type object or null
+ * for each square.
+ */
+final class ChessBoardAdapter extends TypeAdapter<ChessBoard> {
+    @Override
+    public void write(JsonWriter out, ChessBoard board) throws IOException {
+        if (board == null) {
+            out.nullValue();
+            return;
+        }
+        out.value(Fen.formatBoard(board));
+    }
+
+    @Override
+    public ChessBoard read(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BEGIN_OBJECT) {
+            return readLegacy(in);
+        }
+        try {
+            return Fen.parseBoard(in.nextString());
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException(e.getMessage(), e);
+        }
+    }
+
+    private static ChessBoard readLegacy(JsonReader in) throws IOException {
+        ChessBoard board = new ChessBoard();
+        in.beginObject();
+        while (in.hasNext()) {
+            if (!in.nextName().equals("squares")) {
+                in.skipValue();
+                continue;
+            }
+            in.beginArray();
+            for (int row = 1; in.hasNext(); row++) {
+                in.beginArray();
+                for (int col = 1; in.hasNext(); col++) {
+                    ChessPiece piece = readPiece(in);
+                    if (row > 8 || col > 8) {
+                        throw new JsonParseException("Chess board squares are not 8 by 8");
+                    }
+                    if (piece != null) {
+                        board.addPiece(ChessPosition.of(row, col), piece);
+                    }
+                }
+                in.endArray();
+            }
+            in.endArray();
+        }
+        in.endObject();
+        return board;
+    }
+
+    private static ChessPiece readPiece(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        ChessGame.TeamColor color = null;
+        ChessPiece.PieceType type = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "color" -> color = readEnum(in, ChessGame.TeamColor.class);
+                case "type" -> type = readEnum(in, ChessPiece.PieceType.class);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        if (color == null || type == null) {
+            throw new JsonParseException("Chess piece needs a color and a type");
+        }
+        return ChessPiece.of(color, type);
+    }
+
+    static <E extends Enum<E>> E readEnum(JsonReader in, Class<E> type) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String name = in.nextString();
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException("Not a " + type.getSimpleName() + ": " + name, e);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package chess;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Objects;
 
@@ -11,8 +12,37 @@ import java.util.Objects;
  * signature of the existing methods.
  */
 public class ChessGame {
+    private static final TeamColor[] COLORS = TeamColor.values();
+    private static final ChessPiece.PieceType[] PIECE_TYPES = ChessPiece.PieceType.values();
+    // More plies than the fifty-move rule ever needs to look back; a power of two
+    private static final int HISTORY_LIMIT = 128;
+    /**
+     * Plies without a capture or pawn move before the fifty-move rule draws
+     */
+    public static final int FIFTY_MOVE_PLIES = 100;
+
     private TeamColor color;
     private ChessBoard board;
+    // Plies since the last capture or pawn move
+    private int halfmoveClock;
+    // Starts at 1 and goes up after each black move, as in FEN
+    private int fullmoveNumber = 1;
+    // Ring buffer of the position keys left by each move, grown as the clock needs
+    private transient long[] positionHistory;
+    private transient int historySize;
+    private transient MoveGenerator generator;
+    private transient MoveList[] moveBuffers;
+    // Each undo record packs the 16-bit move, the captured and moved piece codes and the team to move
+    private transient int[] undoMoves;
+    private transient long[] undoKeys;
+    private transient int[] undoClocks;
+    private transient int undoCount;
+    private transient GameStatus[] statuses;
+    // Built on the first move query after this game has played a move, then kept up
+    // to date by makeMove and unmakeMove
+    private transient MoveTable moveTable;
+    private transient boolean playing;
+    private transient long[] statusKeys;
 
     public ChessGame() {
         color = TeamColor.WHITE;
@@ -25,6 +55,22 @@ public class ChessGame {
         this.board = board;
     }
 
+    /**
+     * Copies the game's position, team to move, halfmove clock and the earlier
+     * positions that still count for repetitions, but not the moves that can be
+     * taken back
+     */
+    public ChessGame(ChessGame other) {
+        color = other.color;
+        board = new ChessBoard(other.board);
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        long[] recent = other.getRecentPositions();
+        if (recent.length > 0) {
+            restorePositions(recent);
+        }
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -49,6 +95,18 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * Enum identifying where a team stands in the current position
+     */
+    public enum GameStatus {
+        NORMAL,
+        CHECK,
+        CHECKMATE,
+        STALEMATE,
+        REPETITION,
+        FIFTY_MOVE
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -61,19 +119,12 @@ public class ChessGame {
         if (piece == null) {
             return null;
         }
-        Collection<ChessMove> allMoves = piece.pieceMoves(board, startPosition);
-        Collection<ChessMove> validMoves = new ArrayList<>();
-        for (ChessMove move : allMoves) {
-            ChessPosition endPosition = move.getEndPosition();
-            ChessPiece capturedPiece = board.getPiece(endPosition);
-            board.movePiece(move);
-            boolean inCheck = isInCheck(piece.getTeamColor());
-            reverseMove(move, capturedPiece);
-            if (!inCheck) {
-                validMoves.add(move);
-            }
+        int square = Bitboards.square(startPosition);
+        MoveTable table = getMoveTable();
+        if (piece.getTeamColor() == color && table != null) {
+            return table.legalMoves(color, square);
         }
-        return validMoves;
+        return LegalMoveCache.shared().legalMoves(board, piece.getTeamColor(), square);
     }
 
     public boolean isValidMove(ChessMove move) {
@@ -95,7 +146,6 @@ public class ChessGame {
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
         ChessPosition startPosition = move.getStartPosition();
-        ChessPosition endPosition = move.getEndPosition();
         ChessPiece piece = board.getPiece(startPosition);
 
         Collection<ChessMove> validMoves = validMoves(startPosition);
@@ -105,22 +155,233 @@ public class ChessGame {
         if (piece.getTeamColor() != getTeamTurn()) {
             throw new InvalidMoveException("Wrong color moved");
         }
-        ChessPiece capturedPiece = board.getPiece(endPosition);
-        ChessPiece.PieceType promote = move.getPromotionPiece();
-        if (promote == null) {
-            board.addPiece(endPosition, piece);
+        makeMove(Move.fromChessMove(move, board));
+        playing = true;
+    }
+
+    /**
+     * Makes an encoded move without checking that it is legal, and records what is
+     * needed to take it back with {@link #unmakeMove()}
+     *
+     * @param move a legal move for the team to move, encoded with {@link Move}
+     */
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        ChessPiece piece = board.getPiece(from);
+        ChessPiece captured = board.getPiece(to);
+
+        if (undoMoves == null) {
+            undoMoves = new int[256];
+            undoKeys = new long[256];
+            undoClocks = new int[256];
+        } else if (undoCount == undoMoves.length) {
+            undoMoves = Arrays.copyOf(undoMoves, undoCount * 2);
+            undoKeys = Arrays.copyOf(undoKeys, undoCount * 2);
+            undoClocks = Arrays.copyOf(undoClocks, undoCount * 2);
+        }
+        long key = getPositionKey();
+        undoMoves[undoCount] = (move & 0xFFFF) | (pieceCode(captured) << 16) | (pieceCode(piece) << 20)
+                | (color.ordinal() << 24);
+        undoKeys[undoCount] = key;
+        undoClocks[undoCount] = halfmoveClock;
+        undoCount++;
+
+        boolean irreversible = captured != null || piece.getPieceType() == ChessPiece.PieceType.PAWN;
+        halfmoveClock = irreversible ? 0 : halfmoveClock + 1;
+        if (color == TeamColor.BLACK) {
+            fullmoveNumber++;
+        }
+        recordPosition(key);
+
+        long occupied = board.getOccupied();
+        long boardKey = board.getZobristKey();
+        if (Move.isPromotion(move)) {
+            board.addPiece(to, ChessPiece.of(piece.getTeamColor(), Move.promotion(move)));
         } else {
-            ChessPiece newPiece = new ChessPiece(piece.getTeamColor(), promote);
-            board.addPiece(endPosition, newPiece);
+            board.addPiece(to, piece);
         }
-        board.addPiece(startPosition, null);
-        if (isInCheck(color)) {
-            reverseMove(move, capturedPiece);
-            throw new InvalidMoveException("Invalid move: King is in check");
+        board.addPiece(from, null);
+        if (moveTable != null) {
+            moveTable.update((1L << from) | (1L << to), occupied, boardKey);
         }
         nextTurn();
     }
 
+    /**
+     * Takes back the last move made with either makeMove, restoring a promoted
+     * pawn, any captured piece and the team to move
+     */
+    public void unmakeMove() {
+        if (undoCount == 0) {
+            throw new IllegalStateException("No move to take back");
+        }
+        undoCount--;
+        int record = undoMoves[undoCount];
+        int from = Move.from(record);
+        int to = Move.to(record);
+        long occupied = board.getOccupied();
+        long boardKey = board.getZobristKey();
+
+        board.addPiece(from, pieceFromCode((record >>> 20) & 0xF));
+        board.addPiece(to, pieceFromCode((record >>> 16) & 0xF));
+        color = COLORS[(record >>> 24) & 1];
+        halfmoveClock = undoClocks[undoCount];
+        if (color == TeamColor.BLACK) {
+            fullmoveNumber--;
+        }
+        historySize = Math.max(historySize - 1, 0);
+        if (moveTable != null) {
+            moveTable.update((1L << from) | (1L << to), occupied, boardKey);
+        }
+
+        if (getPositionKey() != undoKeys[undoCount]) {
+            throw new IllegalStateException("Board was changed outside makeMove before unmakeMove");
+        }
+    }
+
+    /**
+     * @return how many moves can currently be taken back
+     */
+    public int getUndoCount() {
+        return undoCount;
+    }
+
+    /**
+     * Adds the key of the position a move just left. The buffer only grows to cover
+     * the positions since the last capture or pawn move, counted from the oldest
+     * position that can still be taken back, so a game loaded from storage keeps a
+     * few entries however long it has run.
+     */
+    private void recordPosition(long key) {
+        int span = Math.min(undoCount + undoClocks[0], HISTORY_LIMIT);
+        int needed = Math.min(Integer.highestOneBit(span) * 2, HISTORY_LIMIT);
+        if (positionHistory == null) {
+            positionHistory = new long[Math.max(needed, 8)];
+        } else if (positionHistory.length < needed) {
+            long[] grown = new long[needed];
+            int oldMask = positionHistory.length - 1;
+            for (int i = Math.max(0, historySize - positionHistory.length); i < historySize; i++) {
+                grown[i & (needed - 1)] = positionHistory[i & oldMask];
+            }
+            positionHistory = grown;
+        }
+        positionHistory[historySize & (positionHistory.length - 1)] = key;
+        historySize++;
+    }
+
+    /**
+     * @return how many moves have been made since the last capture or pawn move
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * Sets the halfmove clock, such as from a FEN record. Positions before the
+     * current one are not known, so they are not counted for repetitions.
+     */
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+        historySize = 0;
+    }
+
+    /**
+     * @return the number of the current full move, which starts at 1 and goes up
+     * after each move by black
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public void setFullmoveNumber(int fullmoveNumber) {
+        if (fullmoveNumber < 1) {
+            throw new IllegalArgumentException("Full move numbers start at 1: " + fullmoveNumber);
+        }
+        this.fullmoveNumber = fullmoveNumber;
+    }
+
+    /**
+     * Counts how many times the current position has come up with the same team to
+     * move, including now. Only positions since the last capture or pawn move can
+     * repeat, and only every other one has the same team to move, so only those are
+     * compared.
+     */
+    public int getRepetitionCount() {
+        int count = 1;
+        if (positionHistory == null) {
+            return count;
+        }
+        long key = getPositionKey();
+        int mask = positionHistory.length - 1;
+        int limit = Math.min(Math.min(halfmoveClock, historySize), positionHistory.length);
+        for (int back = 2; back <= limit; back += 2) {
+            if (positionHistory[(historySize - back) & mask] == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public boolean isThreefoldRepetition() {
+        return getRepetitionCount() >= 3;
+    }
+
+    /**
+     * @return true once fifty moves by each team have passed without a capture or
+     * pawn move
+     */
+    public boolean isFiftyMoveDraw() {
+        return halfmoveClock >= FIFTY_MOVE_PLIES;
+    }
+
+    /**
+     * @return the keys of the earlier positions the repetition count can still look
+     * at, oldest first
+     */
+    long[] getRecentPositions() {
+        if (positionHistory == null) {
+            return new long[0];
+        }
+        int count = Math.min(Math.min(halfmoveClock, historySize), positionHistory.length);
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = positionHistory[(historySize - count + i) & (positionHistory.length - 1)];
+        }
+        return keys;
+    }
+
+    /**
+     * Replaces the earlier positions with keys read back from storage, oldest first.
+     * Call after {@link #setHalfmoveClock}, which forgets them.
+     */
+    void setRecentPositions(long[] keys) {
+        restorePositions(keys);
+    }
+
+    private void restorePositions(long[] keys) {
+        int count = Math.min(keys.length, HISTORY_LIMIT);
+        positionHistory = new long[Math.max(Integer.highestOneBit(Math.max(count, 1) * 2 - 1), 8)];
+        for (int i = 0; i < count; i++) {
+            positionHistory[i] = keys[keys.length - count + i];
+        }
+        historySize = count;
+    }
+
+    private static int pieceCode(ChessPiece piece) {
+        if (piece == null) {
+            return 0;
+        }
+        return Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType()) + 1;
+    }
+
+    private static ChessPiece pieceFromCode(int code) {
+        if (code == 0) {
+            return null;
+        }
+        return ChessPiece.of(COLORS[(code - 1) / 6], PIECE_TYPES[(code - 1) % 6]);
+    }
+
     /**
      * Determines if the given team is in check
      *
@@ -128,26 +389,23 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPosition = getKingPosition(teamColor);
-        if (kingPosition == null) {
+        long king = board.getPieces(teamColor, ChessPiece.PieceType.KING);
+        if (king == 0) {
             return false;
         }
         TeamColor opponentColor = (teamColor == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
-        for (int row = 1; row <= 8; row ++) {
-            for (int col = 1; col <= 8; col ++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                if (piece == null || piece.getTeamColor() != opponentColor) {
-                    continue;
-                }
-                for (ChessMove move : piece.pieceMoves(board, position)) {
-                    if (move.getEndPosition().equals(kingPosition)) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+        return Bitboards.isSquareAttacked(board, Long.numberOfTrailingZeros(king), opponentColor);
+    }
+
+    /**
+     * Determines if any piece of the given team attacks a square
+     *
+     * @param position       the square to check
+     * @param attackingColor which team to look for attackers from
+     * @return True if the square is attacked by the specified team
+     */
+    public boolean isSquareAttacked(ChessPosition position, TeamColor attackingColor) {
+        return Bitboards.isSquareAttacked(board, Bitboards.square(position), attackingColor);
     }
 
     /**
@@ -157,10 +415,7 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        if (!isInCheck(teamColor)) {
-            return false;
-        }
-        return noValidMoves(teamColor);
+        return getGameStatus(teamColor) == GameStatus.CHECKMATE;
     }
 
     /**
@@ -171,10 +426,51 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        if (isInCheck(teamColor)) {
-            return false;
+        return getGameStatus(teamColor) == GameStatus.STALEMATE;
+    }
+
+    /**
+     * Gets whether the given team is in check and whether it has any move left, worked
+     * out together in one pass. The result is kept until the board changes, so asking
+     * for checkmate, stalemate and check after a move only does the work once.
+     * Checkmate and stalemate come before a draw by repetition or the fifty-move
+     * rule, which are reported instead of check or normal play.
+     *
+     * @param teamColor which team to get the status of
+     * @return the status of the specified team
+     */
+    public GameStatus getGameStatus(TeamColor teamColor) {
+        GameStatus status = getBoardStatus(teamColor);
+        if (status == GameStatus.CHECKMATE || status == GameStatus.STALEMATE) {
+            return status;
         }
-        return noValidMoves(teamColor);
+        if (isFiftyMoveDraw()) {
+            return GameStatus.FIFTY_MOVE;
+        }
+        return isThreefoldRepetition() ? GameStatus.REPETITION : status;
+    }
+
+    private GameStatus getBoardStatus(TeamColor teamColor) {
+        if (statuses == null) {
+            statuses = new GameStatus[2];
+            statusKeys = new long[2];
+        }
+        int index = teamColor.ordinal();
+        long key = board.getZobristKey();
+        if (statuses[index] != null && statusKeys[index] == key) {
+            return statuses[index];
+        }
+
+        MoveGenerator generator = new MoveGenerator(board, teamColor);
+        GameStatus status;
+        if (generator.hasLegalMove()) {
+            status = generator.isInCheck() ? GameStatus.CHECK : GameStatus.NORMAL;
+        } else {
+            status = generator.isInCheck() ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        }
+        statuses[index] = status;
+        statusKeys[index] = key;
+        return status;
     }
 
     /**
@@ -184,6 +480,12 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        moveTable = null;
+        playing = false;
+        undoCount = 0;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        historySize = 0;
     }
 
     /**
@@ -196,58 +498,100 @@ public class ChessGame {
     }
 
     public ChessPosition getKingPosition(TeamColor color) {
-        ChessPosition kingPosition = null;
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition currentPosition = new ChessPosition(row, col);
-                ChessPiece currentPiece = board.getPiece(currentPosition);
-                if (currentPiece != null && currentPiece.getPieceType() == ChessPiece.PieceType.KING && currentPiece.getTeamColor() == color) {
-                    kingPosition = currentPosition;
-                    return kingPosition;
-                }
-
-            }
+        long king = board.getPieces(color, ChessPiece.PieceType.KING);
+        if (king == 0) {
+            return null;
         }
-        return null;
+        return Bitboards.position(Long.numberOfTrailingZeros(king));
     }
 
+    /**
+     * Gets every legal move for a team. Once this game has played a move, the team
+     * to move reads the game's own move table; otherwise, and for the other team,
+     * the moves come from the shared cache.
+     *
+     * @return a new list for either team, which the caller may change
+     */
     public Collection<ChessMove> getAllMoves(TeamColor color) {
-        Collection<ChessMove> allMoves = new ArrayList<>();
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                if (piece != null && piece.getTeamColor() == color) {
-                    Collection<ChessMove> moves = validMoves(position);
-                    allMoves.addAll(moves);
-                }
-            }
+        MoveTable table = getMoveTable();
+        if (color == this.color && table != null) {
+            return new ArrayList<>(table.legalMoves(color));
         }
-        return allMoves;
+        return LegalMoveCache.shared().legalMoves(board, color);
     }
 
+    /**
+     * @return the game's move table, or null until a move has been played through
+     * {@link #makeMove(ChessMove)}. A game loaded only to check one move, as the
+     * server does for each request, never builds a table it would throw away, and
+     * reads common positions from the shared cache instead.
+     */
+    private MoveTable getMoveTable() {
+        if (moveTable == null && playing) {
+            moveTable = new MoveTable(board);
+        }
+        return moveTable;
+    }
+
+    /**
+     * Moves a piece back and puts back what it captured. This cannot restore a
+     * promoted pawn or the team to move, so prefer {@link #unmakeMove()}.
+     */
     public void reverseMove(ChessMove move, ChessPiece capturedPiece) {
         ChessPosition startPosition = move.getEndPosition();
         ChessPosition endPosition = move.getStartPosition();
-        ChessMove reverse = new ChessMove(startPosition, endPosition, null);
+        ChessMove reverse = ChessMove.of(startPosition, endPosition, null);
 
         board.movePiece(reverse);
         board.addPiece(startPosition, capturedPiece);
     }
 
     public boolean noValidMoves(TeamColor color) {
-        Collection<ChessMove> allMoves = getAllMoves(color);
-        for (ChessMove move : allMoves) {
-            ChessPosition endPosition = move.getEndPosition();
-            ChessPiece capturedPiece = board.getPiece(endPosition);
-            board.movePiece(move);
-            if (!isInCheck(color)) {
-                reverseMove(move, capturedPiece);
-                return false;
-            }
-            reverseMove(move, capturedPiece);
+        return !new MoveGenerator(board, color).hasLegalMove();
+    }
+
+    /**
+     * Gets the reusable move list for a search ply, so searches and perft runs can
+     * generate moves at every depth without allocating
+     *
+     * @param ply how many moves deep the caller is from its root
+     * @return the move list owned by that ply
+     */
+    public MoveList getMoveBuffer(int ply) {
+        if (moveBuffers == null) {
+            moveBuffers = new MoveList[64];
+        }
+        if (ply >= moveBuffers.length) {
+            moveBuffers = Arrays.copyOf(moveBuffers, Math.max(ply + 1, moveBuffers.length * 2));
+        }
+        if (moveBuffers[ply] == null) {
+            moveBuffers[ply] = new MoveList();
+        }
+        return moveBuffers[ply];
+    }
+
+    /**
+     * Generates the legal moves for the team to move into the buffer for a ply
+     *
+     * @param ply how many moves deep the caller is from its root
+     * @return the ply's move list, holding only the new moves
+     */
+    public MoveList generateLegalMoves(int ply) {
+        MoveList moves = getMoveBuffer(ply);
+        moves.clear();
+        if (generator == null) {
+            generator = new MoveGenerator();
         }
-        return true;
+        generator.setPosition(board, color);
+        generator.generateLegalMoves(moves);
+        return moves;
+    }
+
+    /**
+     * @return the Zobrist key of the board with the side to move folded in
+     */
+    public long getPositionKey() {
+        return board.getZobristKey() ^ Zobrist.sideKey(color);
     }
 
     public void nextTurn() {
@@ -268,6 +612,7 @@ public class ChessGame {
 
     @Override
     public int hashCode() {
-        return Objects.hash(color, board);
+        // equals allows a game without a board, so hashing must too
+        return (board == null) ? Objects.hashCode(color) : Long.hashCode(getPositionKey());
     }
 }
\ No newline at end of file
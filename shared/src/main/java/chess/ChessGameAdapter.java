@@ -0,0 +1,133 @@
+package chess;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Writes a game as a version tag, its FEN record and the keys of the earlier
+ * positions that still count for repetitions:
+ * <pre>
+ * {"version":1,"fen":"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b - - 0 1","history":[...]}
+ * </pre>
+ * A game without a version tag is read as the older form Gson wrote from the
+ * game's fields, with the board as in {@link ChessBoardAdapter}.
+ */
+final class ChessGameAdapter extends TypeAdapter<ChessGame> {
+    static final int VERSION = 1;
+
+    private final ChessBoardAdapter boards;
+
+    ChessGameAdapter(ChessBoardAdapter boards) {
+        this.boards = boards;
+    }
+
+    @Override
+    public void write(JsonWriter out, ChessGame game) throws IOException {
+        if (game == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("version").value(VERSION);
+        out.name("fen").value(Fen.format(game));
+        long[] history = game.getRecentPositions();
+        if (history.length > 0) {
+            out.name("history").beginArray();
+            for (long key : history) {
+                out.value(key);
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public ChessGame read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String fen = null;
+        long[] history = null;
+        // Fields of the older form
+        ChessGame.TeamColor color = ChessGame.TeamColor.WHITE;
+        ChessBoard board = null;
+        int halfmoveClock = 0;
+        int historySize = 0;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "version" -> {
+                    int version = in.nextInt();
+                    if (version > VERSION) {
+                        throw new JsonParseException("Chess game is in a newer format: version " + version);
+                    }
+                }
+                case "fen" -> fen = in.nextString();
+                case "history", "positionHistory" -> history = readKeys(in);
+                case "color" -> color = ChessBoardAdapter.readEnum(in, ChessGame.TeamColor.class);
+                case "board" -> board = boards.read(in);
+                case "halfmoveClock" -> halfmoveClock = in.nextInt();
+                case "historySize" -> historySize = in.nextInt();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+
+        ChessGame game;
+        if (fen != null) {
+            try {
+                game = Fen.parse(fen);
+            } catch (IllegalArgumentException e) {
+                throw new JsonParseException(e.getMessage(), e);
+            }
+        } else {
+            if (board == null) {
+                throw new JsonParseException("Chess game has neither a FEN record nor a board");
+            }
+            game = new ChessGame(board);
+            game.setTeamTurn(color);
+            game.setHalfmoveClock(halfmoveClock);
+            history = (history == null) ? null : unroll(history, historySize);
+        }
+        if (history != null) {
+            game.setRecentPositions(history);
+        }
+        return game;
+    }
+
+    private static long[] readKeys(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        long[] keys = new long[16];
+        int count = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+            }
+            keys[count++] = in.nextLong();
+        }
+        in.endArray();
+        return Arrays.copyOf(keys, count);
+    }
+
+    // The older form stored the ring buffer itself; this lays its entries out oldest first
+    private static long[] unroll(long[] ring, int size) {
+        int count = Math.min(ring.length, Math.max(size, 0));
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = ring[(size - count + i) % ring.length];
+        }
+        return keys;
+    }
+}
@@ -9,6 +9,8 @@ import java.util.Objects;
  * signature of the existing methods.
  */
 public class ChessMove {
+    private static final ChessMove[] MOVES = new ChessMove[64 * 64 * 5];
+
     private final ChessPosition start;
     private final ChessPosition end;
     private final ChessPiece.PieceType promote;
@@ -20,6 +22,50 @@ public class ChessMove {
         this.promote = promotionPiece;
     }
 
+    /**
+     * Gets the shared instance for a move between two squares. Instances are
+     * created on first use; a race only means two equal moves get built.
+     */
+    public static ChessMove of(ChessPosition startPosition, ChessPosition endPosition,
+                               ChessPiece.PieceType promotionPiece) {
+        if (!onBoard(startPosition) || !onBoard(endPosition)) {
+            return new ChessMove(startPosition, endPosition, promotionPiece);
+        }
+        return of(Bitboards.square(startPosition), Bitboards.square(endPosition), promotionPiece);
+    }
+
+    public static ChessMove of(int from, int to, ChessPiece.PieceType promotionPiece) {
+        int slot = promotionSlot(promotionPiece);
+        if (slot < 0) {
+            return new ChessMove(ChessPosition.of(from), ChessPosition.of(to), promotionPiece);
+        }
+        int index = (from * 64 + to) * 5 + slot;
+        ChessMove move = MOVES[index];
+        if (move == null) {
+            move = new ChessMove(ChessPosition.of(from), ChessPosition.of(to), promotionPiece);
+            MOVES[index] = move;
+        }
+        return move;
+    }
+
+    private static int promotionSlot(ChessPiece.PieceType promotionPiece) {
+        if (promotionPiece == null) {
+            return 0;
+        }
+        return switch (promotionPiece) {
+            case QUEEN -> 1;
+            case ROOK -> 2;
+            case BISHOP -> 3;
+            case KNIGHT -> 4;
+            default -> -1;
+        };
+    }
+
+    private static boolean onBoard(ChessPosition position) {
+        return position != null && position.getRow() >= 1 && position.getRow() <= 8
+                && position.getColumn() >= 1 && position.getColumn() <= 8;
+    }
+
     /**
      * @return ChessPosition of starting location
      */
@@ -54,7 +100,8 @@ public class ChessMove {
 
     @Override
     public int hashCode() {
-        return Objects.hash(start, end, promote);
+        int promoteHash = (promote == null) ? 0 : promote.ordinal() + 1;
+        return (Objects.hashCode(start) * 31 + Objects.hashCode(end)) * 7 + promoteHash;
     }
 
     @Override
@@ -0,0 +1,107 @@
+package chess;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes a move as its start and end squares and any promotion, such as "e7e8q".
+ * Also reads the older form of an object with start, end and promote fields.
+ */
+final class ChessMoveAdapter extends TypeAdapter<ChessMove> {
+    @Override
+    public void write(JsonWriter out, ChessMove move) throws IOException {
+        if (move == null) {
+            out.nullValue();
+            return;
+        }
+        StringBuilder text = new StringBuilder(5);
+        appendSquare(text, move.getStartPosition());
+        appendSquare(text, move.getEndPosition());
+        if (move.getPromotionPiece() != null) {
+            text.append(Fen.toChar(ChessPiece.of(ChessGame.TeamColor.BLACK, move.getPromotionPiece())));
+        }
+        out.value(text.toString());
+    }
+
+    @Override
+    public ChessMove read(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BEGIN_OBJECT) {
+            return readLegacy(in);
+        }
+        String text = in.nextString();
+        if (text.length() < 4 || text.length() > 5) {
+            throw new JsonParseException("Not a move: " + text);
+        }
+        ChessPiece.PieceType promotion = null;
+        if (text.length() == 5) {
+            try {
+                promotion = Fen.toPiece(text.charAt(4)).getPieceType();
+            } catch (IllegalArgumentException e) {
+                throw new JsonParseException("Not a move: " + text, e);
+            }
+        }
+        return ChessMove.of(parseSquare(text, 0), parseSquare(text, 2), promotion);
+    }
+
+    private static void appendSquare(StringBuilder text, ChessPosition position) {
+        if (position.getRow() < 1 || position.getRow() > 8 || position.getColumn() < 1 || position.getColumn() > 8) {
+            throw new IllegalArgumentException("Move leaves the board: " + position);
+        }
+        text.append((char) ('a' + position.getColumn() - 1)).append(position.getRow());
+    }
+
+    private static int parseSquare(String text, int index) {
+        int col = text.charAt(index) - 'a' + 1;
+        int row = text.charAt(index + 1) - '0';
+        if (col < 1 || col > 8 || row < 1 || row > 8) {
+            throw new JsonParseException("Not a move: " + text);
+        }
+        return Bitboards.square(row, col);
+    }
+
+    private static ChessMove readLegacy(JsonReader in) throws IOException {
+        ChessPosition start = null;
+        ChessPosition end = null;
+        ChessPiece.PieceType promotion = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "start" -> start = readPosition(in);
+                case "end" -> end = readPosition(in);
+                case "promote" -> promotion = ChessBoardAdapter.readEnum(in, ChessPiece.PieceType.class);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return ChessMove.of(start, end, promotion);
+    }
+
+    private static ChessPosition readPosition(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        int row = 0;
+        int col = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "row" -> row = in.nextInt();
+                case "col" -> col = in.nextInt();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return ChessPosition.of(row, col);
+    }
+}
@@ -2,7 +2,6 @@ package chess;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Objects;
 
 /**
  * Represents a single chess piece
@@ -11,6 +10,16 @@ import java.util.Objects;
  * signature of the existing methods.
  */
 public class ChessPiece {
+    private static final ChessPiece[][] PIECES = new ChessPiece[2][6];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[color.ordinal()][type.ordinal()] = new ChessPiece(color, type);
+            }
+        }
+    }
+
     private final ChessGame.TeamColor color;
     private final ChessPiece.PieceType type;
 
@@ -19,6 +28,14 @@ public class ChessPiece {
         this.type = type;
     }
 
+    /**
+     * Gets the shared instance for a color and type. Pieces are immutable, so the
+     * twelve shared instances can stand in for any piece on any board.
+     */
+    public static ChessPiece of(ChessGame.TeamColor color, PieceType type) {
+        return PIECES[color.ordinal()][type.ordinal()];
+    }
+
     /**
      * The various different chess piece options
      */
@@ -77,174 +94,49 @@ public class ChessPiece {
     }
 
     public Collection<ChessMove> getKingMoves(ChessBoard board, ChessPosition startPosition) {
-        int startRow = startPosition.getRow();
-        int startCol = startPosition.getColumn();
-        Collection<ChessMove> moves = new ArrayList<>();
-
-        for (int row = startRow - 1; row <= startRow + 1; row ++) {
-            for (int col = startCol - 1; col <= startCol + 1; col ++) {
-                if (outOfBounds(row, col)) {
-                    continue;
-                }
-                if (row == startRow && col == startCol) {
-                    continue;
-                }
-                ChessPosition endPosition = new ChessPosition(row, col);
-                ChessPiece otherPiece = board.getPiece(endPosition);
-                if (pieceBlocking(this, otherPiece)) {
-                    continue;
-                }
-                ChessMove move = new ChessMove(startPosition, endPosition, null);
-                moves.add(move);
-            }
-        }
-        return moves;
+        int square = Bitboards.square(startPosition);
+        long targets = Bitboards.kingAttacks(square) & ~board.getPieces(color);
+        return toMoves(startPosition, targets);
     }
 
     public Collection<ChessMove> getRookMoves(ChessBoard board, ChessPosition startPosition) {
-        Collection<ChessMove> moves = new ArrayList<>();
-        int[][] directions = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
-
-        for (int[] direction : directions) {
-            int rowStep = direction[0];
-            int colStep = direction[1];
-            moves.addAll(getMovesOneDirection(board, startPosition, rowStep, colStep));
-        }
-        return moves;
+        int square = Bitboards.square(startPosition);
+        long targets = Bitboards.rookAttacks(square, board.getOccupied()) & ~board.getPieces(color);
+        return toMoves(startPosition, targets);
     }
 
     public Collection<ChessMove> getBishopMoves(ChessBoard board, ChessPosition startPosition) {
-        Collection<ChessMove> moves = new ArrayList<>();
-        int[][] directions = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
-
-        for (int[] direction : directions) {
-            int rowStep = direction[0];
-            int colStep = direction[1];
-            moves.addAll(getMovesOneDirection(board, startPosition, rowStep, colStep));
-        }
-        return moves;
-    }
-
-    private Collection<ChessMove> getMovesOneDirection(ChessBoard board, ChessPosition startPosition, int rowStep, int colStep) {
-        int startRow = startPosition.getRow() + rowStep;
-        int startCol = startPosition.getColumn() + colStep;
-        Collection<ChessMove> moves = new ArrayList<>();
-        while (!outOfBounds(startRow, startCol)) {
-            ChessPosition endPosition = new ChessPosition(startRow, startCol);
-            ChessPiece otherPiece = board.getPiece(endPosition);
-            if (pieceBlocking(this, otherPiece)) {
-                break;
-            }
-            moves.add(new ChessMove(startPosition, endPosition, null));
-            if (pieceCaptured(this, otherPiece)) {
-                break;
-            }
-            startRow += rowStep;
-            startCol += colStep;
-        }
-        return moves;
+        int square = Bitboards.square(startPosition);
+        long targets = Bitboards.bishopAttacks(square, board.getOccupied()) & ~board.getPieces(color);
+        return toMoves(startPosition, targets);
     }
 
     public Collection<ChessMove> getQueenMoves(ChessBoard board, ChessPosition startPosition) {
-        Collection<ChessMove> moves1 = getRookMoves(board, startPosition);
-        Collection<ChessMove> moves2 = getBishopMoves(board, startPosition);
-        moves1.addAll(moves2);
-        return moves1;
+        int square = Bitboards.square(startPosition);
+        long targets = Bitboards.queenAttacks(square, board.getOccupied()) & ~board.getPieces(color);
+        return toMoves(startPosition, targets);
     }
 
     public Collection<ChessMove> getKnightMoves(ChessBoard board, ChessPosition startPosition) {
-        Collection<ChessMove> moves = new ArrayList<>();
-        int [][] directions = {{2, 1}, {1, 2}, {-1, 2}, {-2, 1}, {-2, -1}, {-1, -2}, {1, -2}, {2, -1}};
-
-        for (int[] direction : directions) {
-            int rowStep = direction[0];
-            int colStep = direction[1];
-            ChessMove move = getSingleKnightMove(board, startPosition, rowStep, colStep);
-            if (move != null) {
-                moves.add(move);
-            }
-        }
-        return moves;
-    }
-
-    private ChessMove getSingleKnightMove(ChessBoard board, ChessPosition startPosition, int rowStep, int colStep) {
-        int startRow = startPosition.getRow();
-        int startCol = startPosition.getColumn();
-        if (outOfBounds(startRow + rowStep, startCol + colStep)) {
-            return null;
-        }
-        ChessPosition endPosition = new ChessPosition(startRow + rowStep, startCol + colStep);
-        ChessPiece otherPiece = board.getPiece(endPosition);
-        if (pieceBlocking(this, otherPiece)) {
-            return null;
-        }
-        return new ChessMove(startPosition, endPosition, null);
+        int square = Bitboards.square(startPosition);
+        long targets = Bitboards.knightAttacks(square) & ~board.getPieces(color);
+        return toMoves(startPosition, targets);
     }
 
     public Collection<ChessMove> getPawnMoves(ChessBoard board, ChessPosition startPosition) {
-        Collection<ChessMove> moves = new ArrayList<>();
-
-        int firstRow = (color == ChessGame.TeamColor.WHITE)? 2 : 7;
-        int step = (color == ChessGame.TeamColor.WHITE)? 1 : -1;
-        int promotionRow = (color == ChessGame.TeamColor.WHITE)? 8 : 1;
-
-        moves.addAll(getPawnForwardMoves(board, startPosition, firstRow, step, promotionRow));
-        moves.addAll(getPawnCaptureMoves(board, startPosition, step, promotionRow));
-        return moves;
-    }
-
-    private Collection<ChessMove> getPawnForwardMoves(ChessBoard board, ChessPosition startPosition, int firstRow, int step, int promotionRow) {
-        int startRow = startPosition.getRow();
-        int startCol = startPosition.getColumn();
-        Collection<ChessMove> moves = new ArrayList<>();
-
-        ChessPosition ahead1 = new ChessPosition(startRow + step, startCol);
-        if (!outOfBounds(startRow + step, startCol) && board.getPiece(ahead1) == null) {
-            if (ahead1.getRow() == promotionRow) {
-                moves.addAll(getPawnPromotionMoves(startPosition, ahead1));
-            } else {
-                moves.add(new ChessMove(startPosition, ahead1, null));
-            }
-        }
+        int square = Bitboards.square(startPosition);
+        ChessGame.TeamColor opponent = (color == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        long targets = Bitboards.pawnAttacks(color, square) & board.getPieces(opponent);
+        targets |= Bitboards.pawnPushes(color, square, board.getOccupied());
 
-        if (startRow == firstRow && board.getPiece(ahead1) == null) {
-            ChessPosition ahead2 = new ChessPosition(startRow + step * 2, startCol);
-            if (board.getPiece(ahead2) == null) {
-                moves.add(new ChessMove(startPosition, ahead2, null));
-            }
-        }
-        return moves;
-    }
-
-    private Collection<ChessMove> getPawnPromotionMoves(ChessPosition startPosition, ChessPosition endPosition) {
         Collection<ChessMove> moves = new ArrayList<>();
-        PieceType[] promotionTypes = {PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT};
-
-        for (PieceType promotionType : promotionTypes) {
-            moves.add(new ChessMove(startPosition, endPosition, promotionType));
-        }
+        MoveGenerator.addMoves(moves, square, targets, true, color);
         return moves;
     }
 
-    private Collection<ChessMove> getPawnCaptureMoves(ChessBoard board, ChessPosition startPosition, int step, int promotionRow) {
-        int startRow = startPosition.getRow();
-        int startCol = startPosition.getColumn();
-        Collection<ChessMove> moves = new ArrayList<>();
-        int[] directions = {-1, 1};
-
-        for (int direction : directions) {
-            ChessPosition endPosition = new ChessPosition(startRow + step, startCol + direction);
-            if (!outOfBounds(endPosition.getRow(), endPosition.getColumn())) {
-                ChessPiece otherPiece = board.getPiece(endPosition);
-                if (pieceCaptured(this, otherPiece)) {
-                    if (endPosition.getRow() == promotionRow) {
-                        moves.addAll(getPawnPromotionMoves(startPosition, endPosition));
-                    } else {
-                        moves.add(new ChessMove(startPosition, endPosition, null));
-                    }
-                }
-            }
-        }
+    private Collection<ChessMove> toMoves(ChessPosition startPosition, long targets) {
+        Collection<ChessMove> moves = new ArrayList<>(Long.bitCount(targets));
+        MoveGenerator.addMoves(moves, Bitboards.square(startPosition), targets, false, color);
         return moves;
     }
 
@@ -270,7 +162,9 @@ public class ChessPiece {
 
     @Override
     public int hashCode() {
-        return Objects.hash(color, type);
+        int colorHash = (color == null) ? 0 : color.ordinal() + 1;
+        int typeHash = (type == null) ? 0 : type.ordinal() + 1;
+        return colorHash * 7 + typeHash;
     }
 
     @Override
@@ -0,0 +1,123 @@
+package chess;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation.
+ * <p>
+ * Piece placement, side to move, the halfmove clock and the full move number are
+ * used. This engine has
+ * no castling or en passant, so those fields are accepted and ignored when
+ * reading and written as "-" when writing.
+ */
+public final class Fen {
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1";
+
+    private Fen() {
+    }
+
+    public static ChessGame parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        ChessGame game = new ChessGame(parseBoard(fields[0]));
+        if (fields.length > 1 && fields[1].equals("b")) {
+            game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        }
+        if (fields.length > 4) {
+            try {
+                game.setHalfmoveClock(Integer.parseInt(fields[4]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("FEN halfmove clock is not a number: " + fields[4]);
+            }
+        }
+        if (fields.length > 5) {
+            try {
+                game.setFullmoveNumber(Integer.parseInt(fields[5]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("FEN full move number is not a number: " + fields[5]);
+            }
+        }
+        return game;
+    }
+
+    public static ChessBoard parseBoard(String placement) {
+        ChessBoard board = new ChessBoard();
+        String[] rows = placement.split("/");
+        if (rows.length != 8) {
+            throw new IllegalArgumentException("FEN placement needs 8 rows: " + placement);
+        }
+        for (int i = 0; i < 8; i++) {
+            int row = 8 - i;
+            int col = 1;
+            for (char c : rows[i].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    col += c - '0';
+                } else {
+                    if (col > 8) {
+                        throw new IllegalArgumentException("FEN row is too long: " + rows[i]);
+                    }
+                    board.addPiece(ChessPosition.of(row, col), toPiece(c));
+                    col++;
+                }
+            }
+            if (col != 9) {
+                throw new IllegalArgumentException("FEN row does not cover 8 columns: " + rows[i]);
+            }
+        }
+        return board;
+    }
+
+    public static String format(ChessGame game) {
+        String turn = (game.getTeamTurn() == ChessGame.TeamColor.WHITE) ? "w" : "b";
+        return formatBoard(game.getBoard()) + " " + turn + " - - " + game.getHalfmoveClock() + " " + game.getFullmoveNumber();
+    }
+
+    public static String formatBoard(ChessBoard board) {
+        StringBuilder placement = new StringBuilder(72);
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(Bitboards.square(row, col));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    placement.append(empty);
+                    empty = 0;
+                }
+                placement.append(toChar(piece));
+            }
+            if (empty > 0) {
+                placement.append(empty);
+            }
+            if (row > 1) {
+                placement.append('/');
+            }
+        }
+        return placement.toString();
+    }
+
+    public static char toChar(ChessPiece piece) {
+        char c = switch (piece.getPieceType()) {
+            case KING -> 'k';
+            case QUEEN -> 'q';
+            case BISHOP -> 'b';
+            case KNIGHT -> 'n';
+            case ROOK -> 'r';
+            case PAWN -> 'p';
+        };
+        return (piece.getTeamColor() == ChessGame.TeamColor.WHITE) ? Character.toUpperCase(c) : c;
+    }
+
+    public static ChessPiece toPiece(char c) {
+        ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        ChessPiece.PieceType type = switch (Character.toLowerCase(c)) {
+            case 'k' -> ChessPiece.PieceType.KING;
+            case 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'n' -> ChessPiece.PieceType.KNIGHT;
+            case 'r' -> ChessPiece.PieceType.ROOK;
+            case 'p' -> ChessPiece.PieceType.PAWN;
+            default -> throw new IllegalArgumentException("Unknown FEN piece: " + c);
+        };
+        return ChessPiece.of(color, type);
+    }
+}
@@ -0,0 +1,36 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Builds the Gson used by the server and client, so both write games, boards and
+ * moves in the same compact form: a board as its FEN piece placement, a move as
+ * text like "e2e4" and a game as a versioned FEN record. The older reflective
+ * form of each can still be read, so stored games keep loading.
+ */
+public final class GsonFactory {
+    private static final Gson GSON = builder().create();
+
+    private GsonFactory() {
+    }
+
+    /**
+     * @return the shared instance, which is safe to use from any thread
+     */
+    public static Gson gson() {
+        return GSON;
+    }
+
+    /**
+     * @return a builder with the chess type adapters registered, for callers that
+     * need further settings
+     */
+    public static GsonBuilder builder() {
+        ChessBoardAdapter boards = new ChessBoardAdapter();
+        return new GsonBuilder()
+                .registerTypeAdapter(ChessBoard.class, boards)
+                .registerTypeAdapter(ChessMove.class, new ChessMoveAdapter())
+                .registerTypeAdapter(ChessGame.class, new ChessGameAdapter(boards));
+    }
+}
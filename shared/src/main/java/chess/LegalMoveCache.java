@@ -0,0 +1,109 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size table of legal moves keyed by Zobrist key and team, shared by every
+ * game in the process so positions that many games pass through are only
+ * generated once.
+ * <p>
+ * Each key maps to one slot and a new position simply replaces whatever was in
+ * its slot, so the cache never grows past its capacity. Entries are immutable and
+ * published through an atomic array, so readers never lock.
+ */
+public final class LegalMoveCache {
+    private static final LegalMoveCache SHARED = new LegalMoveCache(1 << 14);
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // Moves are grouped by starting square, with a square's moves at offsets[square] until offsets[square + 1]
+    private record Entry(long key, ChessMove[] moves, int[] offsets) {
+    }
+
+    /**
+     * @param capacity the number of positions to hold, rounded up to a power of two
+     */
+    public LegalMoveCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        entries = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    public static LegalMoveCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Gets the legal moves of the piece on a square, for the team given
+     */
+    public Collection<ChessMove> legalMoves(ChessBoard board, ChessGame.TeamColor color, int square) {
+        Entry entry = lookup(board, color);
+        Collection<ChessMove> moves = new ArrayList<>(entry.offsets[square + 1] - entry.offsets[square]);
+        for (int i = entry.offsets[square]; i < entry.offsets[square + 1]; i++) {
+            moves.add(entry.moves[i]);
+        }
+        return moves;
+    }
+
+    /**
+     * Gets every legal move for the team given
+     *
+     * @return a new list, which the caller may change
+     */
+    public Collection<ChessMove> legalMoves(ChessBoard board, ChessGame.TeamColor color) {
+        return new ArrayList<>(Arrays.asList(lookup(board, color).moves));
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int getCapacity() {
+        return entries.length();
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, null);
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    private Entry lookup(ChessBoard board, ChessGame.TeamColor color) {
+        long key = board.getZobristKey() ^ Zobrist.sideKey(color);
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        Entry entry = entries.get(slot);
+        if (entry != null && entry.key == key) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+
+        ChessMove[] moves = new MoveGenerator(board, color).legalMoves().toArray(new ChessMove[0]);
+        int[] offsets = new int[65];
+        for (ChessMove move : moves) {
+            offsets[Bitboards.square(move.getStartPosition()) + 1]++;
+        }
+        for (int square = 0; square < 64; square++) {
+            offsets[square + 1] += offsets[square];
+        }
+        entry = new Entry(key, moves, offsets);
+        entries.set(slot, entry);
+        return entry;
+    }
+}
@@ -0,0 +1,126 @@
+package chess;
+
+/**
+ * Packs a move into the low 16 bits of an int so move lists can be plain int
+ * arrays.
+ * <pre>
+ * bits 0-5   start square
+ * bits 6-11  end square
+ * bits 12-13 promotion piece (knight, bishop, rook, queen)
+ * bit  14    promotion flag
+ * bit  15    capture flag
+ * </pre>
+ * Squares are numbered as in {@link Bitboards}.
+ */
+public final class Move {
+    public static final int NONE = 0;
+    public static final int PROMOTION = 1 << 14;
+    public static final int CAPTURE = 1 << 15;
+
+    private static final ChessPiece.PieceType[] PROMOTION_TYPES = {
+            ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.ROOK, ChessPiece.PieceType.QUEEN
+    };
+
+    private Move() {
+    }
+
+    public static int encode(int from, int to, int flags) {
+        return from | (to << 6) | flags;
+    }
+
+    public static int encodePromotion(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        return from | (to << 6) | (promotionCode(promotion) << 12) | PROMOTION | flags;
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & PROMOTION) != 0;
+    }
+
+    /**
+     * @return the promotion piece type, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        if (!isPromotion(move)) {
+            return null;
+        }
+        return PROMOTION_TYPES[(move >>> 12) & 3];
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return ChessMove.of(from(move), to(move), promotion(move));
+    }
+
+    /**
+     * Encodes a ChessMove, using the board to set the capture flag
+     */
+    public static int fromChessMove(ChessMove move, ChessBoard board) {
+        int from = Bitboards.square(move.getStartPosition());
+        int to = Bitboards.square(move.getEndPosition());
+        int flags = (board.getPiece(to) != null) ? CAPTURE : 0;
+        if (move.getPromotionPiece() != null) {
+            return encodePromotion(from, to, move.getPromotionPiece(), flags);
+        }
+        return encode(from, to, flags);
+    }
+
+    public static String toString(int move) {
+        StringBuilder text = new StringBuilder(5);
+        text.append((char) ('a' + Bitboards.column(from(move)) - 1)).append(Bitboards.row(from(move)));
+        text.append((char) ('a' + Bitboards.column(to(move)) - 1)).append(Bitboards.row(to(move)));
+        if (isPromotion(move)) {
+            text.append(Fen.toChar(ChessPiece.of(ChessGame.TeamColor.BLACK, promotion(move))));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Reads a move written as by {@link #toString(int)}, using the board to set the
+     * capture flag
+     *
+     * @throws IllegalArgumentException if the text is not a move in that form
+     */
+    public static int parse(String text, ChessBoard board) {
+        if (text.length() < 4 || text.length() > 5) {
+            throw new IllegalArgumentException("Not a move: " + text);
+        }
+        int from = parseSquare(text, 0);
+        int to = parseSquare(text, 2);
+        int flags = (board.getPiece(to) != null) ? CAPTURE : 0;
+        if (text.length() == 5) {
+            return encodePromotion(from, to, Fen.toPiece(text.charAt(4)).getPieceType(), flags);
+        }
+        return encode(from, to, flags);
+    }
+
+    private static int parseSquare(String text, int index) {
+        int col = text.charAt(index) - 'a' + 1;
+        int row = text.charAt(index + 1) - '0';
+        if (col < 1 || col > 8 || row < 1 || row > 8) {
+            throw new IllegalArgumentException("Not a move: " + text);
+        }
+        return Bitboards.square(row, col);
+    }
+
+    private static int promotionCode(ChessPiece.PieceType promotion) {
+        return switch (promotion) {
+            case KNIGHT -> 0;
+            case BISHOP -> 1;
+            case ROOK -> 2;
+            case QUEEN -> 3;
+            default -> throw new IllegalArgumentException("Cannot promote to " + promotion);
+        };
+    }
+}
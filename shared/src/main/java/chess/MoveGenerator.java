@@ -0,0 +1,352 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Generates legal moves for one team without making any moves on the board.
+ * <p>
+ * The pieces giving check, the squares that block or capture a single checker,
+ * and the pinned pieces are worked out once when the generator is created, and
+ * each piece's pseudo-legal targets are then filtered through those masks.
+ */
+public final class MoveGenerator {
+    private static final ChessPiece.PieceType[] PROMOTION_TYPES = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK,
+            ChessPiece.PieceType.BISHOP, ChessPiece.PieceType.KNIGHT
+    };
+
+    private ChessBoard board;
+    private ChessGame.TeamColor color;
+    private ChessGame.TeamColor opponent;
+    private int kingSquare;
+    private long checkers;
+    private long checkMask;
+    private long pinned;
+
+    public MoveGenerator() {
+    }
+
+    public MoveGenerator(ChessBoard board, ChessGame.TeamColor color) {
+        setPosition(board, color);
+    }
+
+    /**
+     * Points this generator at a position, so one generator can be reused for many
+     * positions without allocating
+     */
+    public void setPosition(ChessBoard board, ChessGame.TeamColor color) {
+        this.board = board;
+        this.color = color;
+        this.opponent = (color == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+
+        long king = board.getPieces(color, ChessPiece.PieceType.KING);
+        if (king == 0) {
+            kingSquare = -1;
+            checkers = 0;
+            checkMask = -1L;
+            pinned = 0;
+            return;
+        }
+        kingSquare = Long.numberOfTrailingZeros(king);
+        long occupied = board.getOccupied();
+        checkers = Bitboards.attackersTo(board, kingSquare, opponent, occupied);
+
+        if (checkers == 0) {
+            checkMask = -1L;
+        } else if (Long.bitCount(checkers) == 1) {
+            checkMask = checkers | Bitboards.between(kingSquare, Long.numberOfTrailingZeros(checkers));
+        } else {
+            checkMask = 0;
+        }
+
+        long queens = board.getPieces(opponent, ChessPiece.PieceType.QUEEN);
+        long snipers = (Bitboards.rookAttacks(kingSquare, 0) & (board.getPieces(opponent, ChessPiece.PieceType.ROOK) | queens))
+                | (Bitboards.bishopAttacks(kingSquare, 0) & (board.getPieces(opponent, ChessPiece.PieceType.BISHOP) | queens));
+        long pinnedPieces = 0;
+        while (snipers != 0) {
+            long blockers = Bitboards.between(kingSquare, Long.numberOfTrailingZeros(snipers)) & occupied;
+            if (Long.bitCount(blockers) == 1 && (blockers & board.getPieces(color)) != 0) {
+                pinnedPieces |= blockers;
+            }
+            snipers &= snipers - 1;
+        }
+        pinned = pinnedPieces;
+    }
+
+    public boolean isInCheck() {
+        return checkers != 0;
+    }
+
+    /**
+     * Gets the squares the piece on the given square can legally move to
+     *
+     * @param square the square of a piece belonging to this generator's team
+     * @return a mask of legal destination squares
+     */
+    public long legalTargets(int square) {
+        ChessPiece piece = board.getPiece(square);
+        if (piece == null || piece.getTeamColor() != color) {
+            return 0;
+        }
+        return legalTargets(square, pseudoLegalTargets(board, square));
+    }
+
+    /**
+     * Filters a piece's pseudo-legal targets down to the legal ones, for callers that
+     * keep the pseudo-legal targets themselves
+     *
+     * @param square  the square of a piece belonging to this generator's team
+     * @param targets the piece's targets from {@link #pseudoLegalTargets}
+     */
+    long legalTargets(int square, long targets) {
+        if (square == kingSquare) {
+            long withoutKing = board.getOccupied() & ~(1L << square);
+            long legal = 0;
+            while (targets != 0) {
+                int target = Long.numberOfTrailingZeros(targets);
+                if (Bitboards.attackersTo(board, target, opponent, withoutKing) == 0) {
+                    legal |= 1L << target;
+                }
+                targets &= targets - 1;
+            }
+            return legal;
+        }
+        targets &= checkMask;
+        if ((pinned & (1L << square)) != 0) {
+            targets &= Bitboards.line(kingSquare, square);
+        }
+        return targets;
+    }
+
+    /**
+     * Gets the squares the piece on a square could move to if its own king were
+     * never in danger: empty or enemy squares it attacks, and pawn pushes
+     */
+    static long pseudoLegalTargets(ChessBoard board, int square) {
+        ChessPiece piece = board.getPiece(square);
+        if (piece == null) {
+            return 0;
+        }
+        ChessGame.TeamColor team = piece.getTeamColor();
+        long occupied = board.getOccupied();
+        if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+            ChessGame.TeamColor enemy = (team == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+            return (Bitboards.pawnAttacks(team, square) & board.getPieces(enemy))
+                    | Bitboards.pawnPushes(team, square, occupied);
+        }
+        return Bitboards.attacks(piece.getPieceType(), team, square, occupied) & ~board.getPieces(team);
+    }
+
+    /**
+     * Determines if this generator's team has any legal move, stopping at the first
+     * piece that can move. The king is tried first since it is the only piece that
+     * can answer a double check.
+     */
+    public boolean hasLegalMove() {
+        if (kingSquare >= 0 && legalTargets(kingSquare) != 0) {
+            return true;
+        }
+        if (Long.bitCount(checkers) > 1) {
+            return false;
+        }
+        long pieces = board.getPieces(color) & ~board.getPieces(color, ChessPiece.PieceType.KING);
+        while (pieces != 0) {
+            if (legalTargets(Long.numberOfTrailingZeros(pieces)) != 0) {
+                return true;
+            }
+            pieces &= pieces - 1;
+        }
+        return false;
+    }
+
+    /**
+     * Counts legal moves without building them, with each promotion option counted
+     * as its own move
+     */
+    public int countLegalMoves() {
+        int count = 0;
+        long pieces = board.getPieces(color);
+        long pawns = board.getPieces(color, ChessPiece.PieceType.PAWN);
+        long promotionRow = (color == ChessGame.TeamColor.WHITE) ? Bitboards.RANK_8 : Bitboards.RANK_1;
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            long targets = legalTargets(square);
+            count += Long.bitCount(targets);
+            if ((pawns & (1L << square)) != 0) {
+                count += 3 * Long.bitCount(targets & promotionRow);
+            }
+            pieces &= pieces - 1;
+        }
+        return count;
+    }
+
+    public Collection<ChessMove> legalMoves(int square) {
+        Collection<ChessMove> moves = new ArrayList<>();
+        addLegalMoves(square, moves);
+        return moves;
+    }
+
+    public Collection<ChessMove> legalMoves() {
+        Collection<ChessMove> moves = new ArrayList<>();
+        long pieces = board.getPieces(color);
+        while (pieces != 0) {
+            addLegalMoves(Long.numberOfTrailingZeros(pieces), moves);
+            pieces &= pieces - 1;
+        }
+        return moves;
+    }
+
+    /**
+     * Walks the legal moves one piece at a time, working out a piece's targets only
+     * once the moves of the pieces before it are used up, so a caller looking for
+     * the first move that fits stops paying as soon as it finds one. The board must
+     * not change while the iterator is in use.
+     */
+    public Iterator<ChessMove> legalMoveIterator() {
+        return new LegalMoveIterator();
+    }
+
+    /**
+     * @return the legal moves as a lazy stream, for short-circuiting operations such
+     * as anyMatch and findFirst
+     */
+    public Stream<ChessMove> legalMoveStream() {
+        Spliterator<ChessMove> spliterator = Spliterators.spliteratorUnknownSize(legalMoveIterator(),
+                Spliterator.DISTINCT | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    private final class LegalMoveIterator implements Iterator<ChessMove> {
+        private final long promotionRow = (color == ChessGame.TeamColor.WHITE) ? Bitboards.RANK_8 : Bitboards.RANK_1;
+        private long pieces = board.getPieces(color);
+        private int from;
+        private long targets;
+        private boolean pawn;
+        // The next promotion type for the current target, or PROMOTION_TYPES.length if none is pending
+        private int promotion = PROMOTION_TYPES.length;
+
+        @Override
+        public boolean hasNext() {
+            while (targets == 0 && promotion == PROMOTION_TYPES.length) {
+                if (pieces == 0) {
+                    return false;
+                }
+                from = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                targets = legalTargets(from);
+                pawn = board.getPiece(from).getPieceType() == ChessPiece.PieceType.PAWN;
+            }
+            return true;
+        }
+
+        @Override
+        public ChessMove next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int to = Long.numberOfTrailingZeros(targets);
+            if (promotion < PROMOTION_TYPES.length) {
+                ChessMove move = ChessMove.of(from, to, PROMOTION_TYPES[promotion++]);
+                if (promotion == PROMOTION_TYPES.length) {
+                    targets &= targets - 1;
+                }
+                return move;
+            }
+            if (pawn && (promotionRow & (1L << to)) != 0) {
+                promotion = 1;
+                return ChessMove.of(from, to, PROMOTION_TYPES[0]);
+            }
+            targets &= targets - 1;
+            return ChessMove.of(from, to, null);
+        }
+    }
+
+    /**
+     * Adds every legal move to a caller-owned list without allocating
+     */
+    public void generateLegalMoves(MoveList moves) {
+        generate(moves, -1);
+    }
+
+    /**
+     * Adds only the legal moves that give check, for mate searches. A move checks
+     * if the piece attacks the enemy king from its new square, or if moving it
+     * uncovers an attack from a piece behind it.
+     */
+    public void generateChecks(MoveList moves) {
+        long enemyKing = board.getPieces(opponent, ChessPiece.PieceType.KING);
+        if (enemyKing != 0) {
+            generate(moves, Long.numberOfTrailingZeros(enemyKing));
+        }
+    }
+
+    // Adds legal moves, or only those checking the king on checkSquare if it is not -1
+    private void generate(MoveList moves, int checkSquare) {
+        long opponentPieces = board.getPieces(opponent);
+        long pawns = board.getPieces(color, ChessPiece.PieceType.PAWN);
+        long promotionRow = (color == ChessGame.TeamColor.WHITE) ? Bitboards.RANK_8 : Bitboards.RANK_1;
+        long pieces = board.getPieces(color);
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            long targets = legalTargets(from);
+            ChessPiece.PieceType type = board.getPiece(from).getPieceType();
+            boolean pawn = (pawns & (1L << from)) != 0;
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                int flags = ((opponentPieces & (1L << to)) != 0) ? Move.CAPTURE : 0;
+                if (pawn && (promotionRow & (1L << to)) != 0) {
+                    for (ChessPiece.PieceType promotionType : PROMOTION_TYPES) {
+                        if (checkSquare < 0 || givesCheck(from, to, promotionType, checkSquare)) {
+                            moves.add(Move.encodePromotion(from, to, promotionType, flags));
+                        }
+                    }
+                } else if (checkSquare < 0 || givesCheck(from, to, type, checkSquare)) {
+                    moves.add(Move.encode(from, to, flags));
+                }
+                targets &= targets - 1;
+            }
+            pieces &= pieces - 1;
+        }
+    }
+
+    private boolean givesCheck(int from, int to, ChessPiece.PieceType type, int kingSquare) {
+        long occupied = (board.getOccupied() & ~(1L << from)) | (1L << to);
+        if ((Bitboards.attacks(type, color, to, occupied) & (1L << kingSquare)) != 0) {
+            return true;
+        }
+        return (Bitboards.attackersTo(board, kingSquare, color, occupied) & ~(1L << from)) != 0;
+    }
+
+    private void addLegalMoves(int square, Collection<ChessMove> moves) {
+        ChessPiece piece = board.getPiece(square);
+        boolean pawn = piece != null && piece.getPieceType() == ChessPiece.PieceType.PAWN;
+        addMoves(moves, square, legalTargets(square), pawn, color);
+    }
+
+    /**
+     * Turns a mask of destination squares into moves, adding every promotion option
+     * for pawns reaching the last row
+     */
+    static void addMoves(Collection<ChessMove> moves, int from, long targets,
+                         boolean pawn, ChessGame.TeamColor color) {
+        long promotionRow = (color == ChessGame.TeamColor.WHITE) ? Bitboards.RANK_8 : Bitboards.RANK_1;
+        while (targets != 0) {
+            int target = Long.numberOfTrailingZeros(targets);
+            if (pawn && (promotionRow & (1L << target)) != 0) {
+                for (ChessPiece.PieceType promotionType : PROMOTION_TYPES) {
+                    moves.add(ChessMove.of(from, target, promotionType));
+                }
+            } else {
+                moves.add(ChessMove.of(from, target, null));
+            }
+            targets &= targets - 1;
+        }
+    }
+}
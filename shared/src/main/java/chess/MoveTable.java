@@ -0,0 +1,143 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The moves of one game's position, kept up to date as moves are made instead of
+ * being generated again from scratch.
+ * <p>
+ * The table holds the pseudo-legal targets of every piece on the board. A move
+ * only changes the squares it leaves and lands on, so afterwards only the pieces
+ * on those squares, the pieces whose attacks reach them, and the pawns that push
+ * through them are worked out again. Checks and pins are then applied on top when
+ * a team's legal moves are asked for, and that list is kept until the position
+ * changes, so repeated questions between moves cost nothing.
+ * <p>
+ * If the board is edited without telling the table, the next read notices the
+ * Zobrist key has moved on and rebuilds everything.
+ */
+public final class MoveTable {
+    private final ChessBoard board;
+    private final long[] targets = new long[64];
+    private final MoveGenerator generator = new MoveGenerator();
+    // The board key the targets were worked out for
+    private long key;
+    private int rebuilds;
+
+    private final Map<ChessGame.TeamColor, List<ChessMove>> legalMoves = new EnumMap<>(ChessGame.TeamColor.class);
+    private final int[][] offsets = new int[2][];
+    private final long[] legalKeys = new long[2];
+
+    public MoveTable(ChessBoard board) {
+        this.board = board;
+        rebuild();
+    }
+
+    /**
+     * Brings the table up to date after the pieces on some squares changed
+     *
+     * @param changed          a mask of the squares whose pieces changed
+     * @param previousOccupied the occupied squares before the change
+     * @param previousKey      the board's Zobrist key before the change
+     */
+    public void update(long changed, long previousOccupied, long previousKey) {
+        if (key != previousKey) {
+            rebuild();
+            return;
+        }
+        // Sliders are looked for with the fewer blockers of before and after, so one
+        // whose ray reaches a changed square in either position is found
+        long occupied = board.getOccupied() & previousOccupied;
+        long dirty = changed;
+        long squares = changed;
+        while (squares != 0) {
+            int square = Long.numberOfTrailingZeros(squares);
+            dirty |= Bitboards.attackersTo(board, square, ChessGame.TeamColor.WHITE, occupied)
+                    | Bitboards.attackersTo(board, square, ChessGame.TeamColor.BLACK, occupied);
+            squares &= squares - 1;
+        }
+        // Pawns one or two rows behind a changed square may have been blocked or unblocked
+        dirty |= board.getPieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN) & ((changed >>> 8) | (changed >>> 16));
+        dirty |= board.getPieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN) & ((changed << 8) | (changed << 16));
+
+        while (dirty != 0) {
+            int square = Long.numberOfTrailingZeros(dirty);
+            targets[square] = MoveGenerator.pseudoLegalTargets(board, square);
+            dirty &= dirty - 1;
+        }
+        key = board.getZobristKey();
+    }
+
+    /**
+     * Gets every legal move for a team in the board's current position
+     *
+     * @return an unmodifiable list shared until the position changes
+     */
+    public List<ChessMove> legalMoves(ChessGame.TeamColor color) {
+        return lookup(color);
+    }
+
+    /**
+     * Gets the legal moves of the piece on a square, for the team given
+     */
+    public Collection<ChessMove> legalMoves(ChessGame.TeamColor color, int square) {
+        List<ChessMove> moves = lookup(color);
+        int[] squareOffsets = offsets[color.ordinal()];
+        return new ArrayList<>(moves.subList(squareOffsets[square], squareOffsets[square + 1]));
+    }
+
+    /**
+     * @return how many times the table was worked out from scratch
+     */
+    public int getRebuilds() {
+        return rebuilds;
+    }
+
+    private List<ChessMove> lookup(ChessGame.TeamColor color) {
+        if (key != board.getZobristKey()) {
+            rebuild();
+        }
+        int index = color.ordinal();
+        List<ChessMove> cached = legalMoves.get(color);
+        if (cached != null && legalKeys[index] == key) {
+            return cached;
+        }
+
+        generator.setPosition(board, color);
+        List<ChessMove> moves = new ArrayList<>();
+        int[] squareOffsets = new int[65];
+        long pieces = board.getPieces(color);
+        long pawns = board.getPieces(color, ChessPiece.PieceType.PAWN);
+        for (int square = 0; square < 64; square++) {
+            squareOffsets[square] = moves.size();
+            if ((pieces & (1L << square)) != 0) {
+                long legal = generator.legalTargets(square, targets[square]);
+                MoveGenerator.addMoves(moves, square, legal, (pawns & (1L << square)) != 0, color);
+            }
+        }
+        squareOffsets[64] = moves.size();
+        List<ChessMove> legal = Collections.unmodifiableList(moves);
+        legalMoves.put(color, legal);
+        offsets[index] = squareOffsets;
+        legalKeys[index] = key;
+        return legal;
+    }
+
+    private void rebuild() {
+        Arrays.fill(targets, 0);
+        long pieces = board.getOccupied();
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            targets[square] = MoveGenerator.pseudoLegalTargets(board, square);
+            pieces &= pieces - 1;
+        }
+        key = board.getZobristKey();
+        rebuilds++;
+    }
+}
@@ -0,0 +1,179 @@
+package chess;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+/**
+ * Encodes a position in 32 bytes, as four big-endian longs:
+ * <pre>
+ * bytes 0-7   the occupied squares, bit n being square n
+ * bytes 8-23  a 4-bit code for the piece on each occupied square, lowest square
+ *             first, each in the high half of its byte before the low half. The
+ *             code is the piece's {@link Bitboards#pieceIndex}.
+ * byte  24    the team to move, 0 for white and 1 for black
+ * bytes 25-31 zero
+ * </pre>
+ * Only the piece placement and the team to move are encoded, so a position has
+ * exactly one encoding however it was reached, and the bytes can be compared and
+ * hashed as they are. Encoding and decoding work on caller-owned arrays, buffers
+ * and boards and allocate nothing.
+ * <p>
+ * The codec is used for {@link chess.engine.TrainingFile} records, which keep
+ * the halfmove clock beside it.
+ */
+public final class PackedPosition {
+    public static final int BYTES = 32;
+    private static final int MAX_PIECES = 32;
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+                PIECES[Bitboards.pieceIndex(color, type)] = ChessPiece.of(color, type);
+            }
+        }
+    }
+
+    private PackedPosition() {
+    }
+
+    /**
+     * @return a new array holding the game's current position
+     */
+    public static byte[] encode(ChessGame game) {
+        byte[] bytes = new byte[BYTES];
+        encode(game, bytes, 0);
+        return bytes;
+    }
+
+    public static void encode(ChessGame game, byte[] out, int offset) {
+        encode(game.getBoard(), game.getTeamTurn(), out, offset);
+    }
+
+    /**
+     * Writes nothing if it throws
+     *
+     * @throws IllegalArgumentException if the board has more than 32 pieces
+     */
+    public static void encode(ChessBoard board, ChessGame.TeamColor toMove, byte[] out, int offset) {
+        long occupied = checkPieceCount(board.getOccupied());
+        Objects.checkFromIndexSize(offset, BYTES, out.length);
+        LONGS.set(out, offset, occupied);
+        LONGS.set(out, offset + 8, pieceCodes(board, occupied, 0));
+        LONGS.set(out, offset + 16, pieceCodes(board, occupied, 16));
+        LONGS.set(out, offset + 24, trailer(toMove));
+    }
+
+    /**
+     * Writes the position at the buffer's index without moving its position, and
+     * writes nothing if it throws
+     *
+     * @throws IllegalArgumentException if the board has more than 32 pieces
+     */
+    public static void encode(ChessBoard board, ChessGame.TeamColor toMove, ByteBuffer out, int index) {
+        long occupied = checkPieceCount(board.getOccupied());
+        Objects.checkFromIndexSize(index, BYTES, out.limit());
+        out.putLong(index, occupied);
+        out.putLong(index + 8, pieceCodes(board, occupied, 0));
+        out.putLong(index + 16, pieceCodes(board, occupied, 16));
+        out.putLong(index + 24, trailer(toMove));
+    }
+
+    /**
+     * @return a new game holding the encoded position
+     */
+    public static ChessGame decode(byte[] in, int offset) {
+        ChessBoard board = new ChessBoard();
+        decode(in, offset, board);
+        ChessGame game = new ChessGame(board);
+        game.setTeamTurn(teamToMove(in, offset));
+        return game;
+    }
+
+    /**
+     * Sets the board's pieces to the encoded position's, clearing every other
+     * square. Leaves the board as it was if the bytes are not a packed position.
+     */
+    public static void decode(byte[] in, int offset, ChessBoard board) {
+        setPieces(board, (long) LONGS.get(in, offset), (long) LONGS.get(in, offset + 8),
+                (long) LONGS.get(in, offset + 16));
+    }
+
+    /**
+     * Sets the board's pieces to the position encoded at the buffer's index
+     */
+    public static void decode(ByteBuffer in, int index, ChessBoard board) {
+        setPieces(board, in.getLong(index), in.getLong(index + 8), in.getLong(index + 16));
+    }
+
+    public static ChessGame.TeamColor teamToMove(byte[] in, int offset) {
+        return (in[offset + 24] == 0) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+    }
+
+    public static ChessGame.TeamColor teamToMove(ByteBuffer in, int index) {
+        return (in.get(index + 24) == 0) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+    }
+
+    private static long checkPieceCount(long occupied) {
+        if (Long.bitCount(occupied) > MAX_PIECES) {
+            throw new IllegalArgumentException("Too many pieces to pack: " + Long.bitCount(occupied));
+        }
+        return occupied;
+    }
+
+    // The codes of the occupied squares from the first-th onwards, sixteen to a long
+    private static long pieceCodes(ChessBoard board, long occupied, int first) {
+        for (int i = 0; i < first; i++) {
+            occupied &= occupied - 1;
+        }
+        long codes = 0;
+        for (int i = 0; i < 16 && occupied != 0; i++) {
+            ChessPiece piece = board.getPiece(Long.numberOfTrailingZeros(occupied));
+            long code = Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType());
+            codes |= code << (60 - 4 * i);
+            occupied &= occupied - 1;
+        }
+        return codes;
+    }
+
+    private static long trailer(ChessGame.TeamColor toMove) {
+        return (long) toMove.ordinal() << 56;
+    }
+
+    private static int code(long first, long second, int i) {
+        long codes = (i < 16) ? first : second;
+        return (int) (codes >>> (60 - 4 * (i & 15))) & 0xF;
+    }
+
+    // Checks every code before touching the board, so a bad record leaves it as it was
+    private static void setPieces(ChessBoard board, long occupied, long first, long second) {
+        int count = Long.bitCount(occupied);
+        if (count > MAX_PIECES) {
+            throw new IllegalArgumentException("Not a packed position: " + count + " pieces");
+        }
+        for (int i = 0; i < count; i++) {
+            int code = code(first, second, i);
+            if (code >= PIECES.length) {
+                throw new IllegalArgumentException("Not a packed position: piece code " + code);
+            }
+        }
+        long stale = board.getOccupied() & ~occupied;
+        while (stale != 0) {
+            board.addPiece(Long.numberOfTrailingZeros(stale), null);
+            stale &= stale - 1;
+        }
+        for (int i = 0; occupied != 0; i++) {
+            int code = code(first, second, i);
+            int square = Long.numberOfTrailingZeros(occupied);
+            if (board.getPiece(square) != PIECES[code]) {
+                board.addPiece(square, PIECES[code]);
+            }
+            occupied &= occupied - 1;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth, for checking
+ * move generation against known counts and for timing it.
+ * <p>
+ * Run it with no arguments to go through the reference positions, or with a FEN,
+ * a depth and optionally "divide" or "parallel".
+ * <p>
+ * The reference counts follow this engine's rules, which have no castling or en
+ * passant, so they only match published perft numbers where neither can happen.
+ */
+public final class Perft {
+    public record Reference(String name, String fen, long... nodes) {
+    }
+
+    public static final List<Reference> REFERENCE_POSITIONS = List.of(
+            new Reference("start", Fen.START_POSITION, 20, 400, 8902, 197281, 4865351),
+            new Reference("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w - - 0 1",
+                    46, 1865, 86585, 3499358, 161395653),
+            new Reference("endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 14, 191, 2810, 43087, 671300),
+            new Reference("promotions", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w - - 0 1",
+                    6, 258, 9217, 404404, 15087520),
+            new Reference("middlegame", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    46, 2079, 89890, 3894594, 164075429)
+    );
+
+    private static final int SPLIT_DEPTH = 3;
+
+    private Perft() {
+    }
+
+    /**
+     * Counts the positions reachable in exactly depth moves from the game's current
+     * position, with the game's team to move. The game itself is not changed.
+     */
+    public static long perft(ChessGame game, int depth) {
+        return perft(new ChessBoard(game.getBoard()), game.getTeamTurn(), depth);
+    }
+
+    public static long perft(ChessBoard board, ChessGame.TeamColor color, int depth) {
+        ChessGame game = new ChessGame(board);
+        game.setTeamTurn(color);
+        return count(game, new MoveGenerator(), depth, 0);
+    }
+
+    // Leaf counts come from the generator's bulk count rather than building the last ply's moves
+    private static long count(ChessGame game, MoveGenerator counter, int depth, int ply) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (depth == 1) {
+            counter.setPosition(game.getBoard(), game.getTeamTurn());
+            return counter.countLegalMoves();
+        }
+        MoveList moves = game.generateLegalMoves(ply);
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            game.makeMove(moves.get(i));
+            nodes += count(game, counter, depth - 1, ply + 1);
+            game.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Gets the perft count below each root move
+     */
+    public static Map<ChessMove, Long> divide(ChessGame game, int depth) {
+        ChessGame copy = new ChessGame(new ChessBoard(game.getBoard()));
+        copy.setTeamTurn(game.getTeamTurn());
+        Map<ChessMove, Long> counts = new LinkedHashMap<>();
+        MoveList moves = copy.generateLegalMoves(0);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            copy.makeMove(move);
+            counts.put(Move.toChessMove(move), count(copy, new MoveGenerator(), depth - 1, 1));
+            copy.unmakeMove();
+        }
+        return counts;
+    }
+
+    /**
+     * Splits the tree into fork/join tasks, one per move, down to a few plies from
+     * the leaves
+     */
+    public static long parallelPerft(ChessGame game, int depth, ForkJoinPool pool) {
+        return pool.invoke(new PerftTask(new ChessBoard(game.getBoard()), game.getTeamTurn(), depth));
+    }
+
+    private static class PerftTask extends RecursiveTask<Long> {
+        private final ChessBoard board;
+        private final ChessGame.TeamColor color;
+        private final int depth;
+
+        PerftTask(ChessBoard board, ChessGame.TeamColor color, int depth) {
+            this.board = board;
+            this.color = color;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth <= SPLIT_DEPTH) {
+                return perft(board, color, depth);
+            }
+            ChessGame game = new ChessGame(board);
+            game.setTeamTurn(color);
+            MoveList moves = game.generateLegalMoves(0);
+            Collection<PerftTask> tasks = new ArrayList<>();
+            for (int i = 0; i < moves.size(); i++) {
+                ChessGame child = new ChessGame(new ChessBoard(board));
+                child.setTeamTurn(color);
+                child.makeMove(moves.get(i));
+                tasks.add(new PerftTask(child.getBoard(), child.getTeamTurn(), depth - 1));
+            }
+            long nodes = 0;
+            for (PerftTask task : invokeAll(tasks)) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length >= 2) {
+            runSingle(args);
+        } else {
+            runReferenceSuite(args.length == 1 ? Integer.parseInt(args[0]) : Integer.MAX_VALUE);
+        }
+    }
+
+    private static void runSingle(String[] args) {
+        ChessGame game = Fen.parse(args[0]);
+        int depth = Integer.parseInt(args[1]);
+        String mode = args.length > 2 ? args[2] : "";
+
+        long start = System.nanoTime();
+        long nodes;
+        if (mode.equals("divide")) {
+            nodes = 0;
+            for (var entry : divide(game, depth).entrySet()) {
+                System.out.println(Move.toString(Move.fromChessMove(entry.getKey(), game.getBoard())) + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+            System.out.println();
+        } else if (mode.equals("parallel")) {
+            nodes = parallelPerft(game, depth, ForkJoinPool.commonPool());
+        } else {
+            nodes = perft(game, depth);
+        }
+        report("perft(" + depth + ")", nodes, System.nanoTime() - start);
+    }
+
+    private static void runReferenceSuite(int maxDepth) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        System.out.println("threads: " + pool.getParallelism());
+        boolean allPassed = true;
+        for (Reference reference : REFERENCE_POSITIONS) {
+            int depth = Math.min(maxDepth, reference.nodes().length);
+            long expected = reference.nodes()[depth - 1];
+            ChessGame game = Fen.parse(reference.fen());
+
+            long start = System.nanoTime();
+            long nodes = perft(game, depth);
+            report(reference.name() + " perft(" + depth + ")", nodes, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            long parallelNodes = parallelPerft(game, depth, pool);
+            report(reference.name() + " parallel perft(" + depth + ")", parallelNodes, System.nanoTime() - start);
+
+            if (nodes != expected || parallelNodes != expected) {
+                System.out.println("  MISMATCH: expected " + expected);
+                allPassed = false;
+            }
+        }
+        System.out.println(allPassed ? "all reference counts match" : "reference counts do not match");
+    }
+
+    private static void report(String label, long nodes, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%-32s %,14d nodes %9.3f s %,14.0f nodes/s%n", label, nodes, seconds, nodes / seconds);
+    }
+}
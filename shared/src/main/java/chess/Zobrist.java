@@ -0,0 +1,43 @@
+package chess;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of the key for
+ * every piece on its square, plus the side key when black is to move.
+ * <p>
+ * The keys come from a fixed seed so the same position hashes the same way in
+ * every process, which lets keys be stored and shared between client and server.
+ */
+public final class Zobrist {
+    private static final long[][] PIECE_KEYS = new long[12][64];
+    private static final long SIDE_KEY;
+
+    static {
+        long seed = 0x2405C0FFEEL;
+        for (int piece = 0; piece < 12; piece++) {
+            for (int square = 0; square < 64; square++) {
+                seed += 0x9E3779B97F4A7C15L;
+                PIECE_KEYS[piece][square] = mix(seed);
+            }
+        }
+        seed += 0x9E3779B97F4A7C15L;
+        SIDE_KEY = mix(seed);
+    }
+
+    private Zobrist() {
+    }
+
+    public static long pieceKey(ChessPiece piece, int square) {
+        return PIECE_KEYS[Bitboards.pieceIndex(piece.getTeamColor(), piece.getPieceType())][square];
+    }
+
+    public static long sideKey(ChessGame.TeamColor color) {
+        return (color == ChessGame.TeamColor.BLACK) ? SIDE_KEY : 0;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,151 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.MoveList;
+import chess.PieceSquareTables;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Scores many packed positions at once, for analysing stored games offline.
+ * <p>
+ * A position's score is the {@link TaperedEvaluator} score plus
+ * {@link #MOBILITY_WEIGHT} centipawns per square of mobility, from the point of
+ * view of the team to move. The scores come from {@link BatchKernels#best()}, so
+ * they use SIMD lanes when the Vector API is available.
+ */
+public final class BatchEvaluator {
+    static final int MOBILITY_WEIGHT = 4;
+
+    // Indexed by piece type ordinal
+    static final int[] MIDDLEGAME_VALUES = new int[6];
+    static final int[] ENDGAME_VALUES = new int[6];
+    static final int[] PHASES = new int[6];
+
+    static {
+        for (ChessPiece.PieceType type : ChessPiece.PieceType.values()) {
+            MIDDLEGAME_VALUES[type.ordinal()] = PieceSquareTables.middlegameValue(type);
+            ENDGAME_VALUES[type.ordinal()] = PieceSquareTables.endgameValue(type);
+            PHASES[type.ordinal()] = PieceSquareTables.phase(type);
+        }
+    }
+
+    private final BatchKernels kernels;
+
+    public BatchEvaluator() {
+        this(BatchKernels.best());
+    }
+
+    BatchEvaluator(BatchKernels kernels) {
+        this.kernels = kernels;
+    }
+
+    /**
+     * @return the score of each position in the batch, by index
+     */
+    public int[] evaluate(PositionBatch batch) {
+        int[] scores = new int[batch.size()];
+        evaluate(batch, scores);
+        return scores;
+    }
+
+    /**
+     * Scores each position in the batch into the same index of scores, so one
+     * array can be reused across batches
+     */
+    public void evaluate(PositionBatch batch, int[] scores) {
+        if (scores.length < batch.size()) {
+            throw new IllegalArgumentException("Need room for " + batch.size() + " scores, got " + scores.length);
+        }
+        kernels.score(batch, 0, batch.size(), scores);
+    }
+
+    /**
+     * Compares the throughput of scoring board objects one at a time with packing
+     * them into a batch and scoring that, with the scalar and vector kernels. Both
+     * sides work out the same score, mobility included, from the same game
+     * objects. Takes the number of positions (100,000 if left out) and how many
+     * times to score them (20 if left out). The positions come from random games.
+     */
+    public static void main(String[] args) {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+        List<ChessGame> games = randomPositions(count, 120, new Random(2024));
+        System.out.println("positions: " + count + ", rounds: " + rounds);
+
+        TaperedEvaluator tapered = new TaperedEvaluator();
+        int[] scores = new int[count];
+        long checksum = 0;
+        // Every timed loop gets as many untimed rounds first, so each is measured
+        // compiled; the vector kernels run far slower than scalar code until then
+        for (int round = 0; round < rounds; round++) {
+            scoreObjects(games, tapered, scores);
+        }
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            scoreObjects(games, tapered, scores);
+            checksum += scores[round % count];
+        }
+        report("objects", (long) count * rounds, System.nanoTime() - start);
+
+        PositionBatch batch = new PositionBatch(count);
+        BatchKernels[] kernels = {new ScalarBatchKernels(), BatchKernels.best()};
+        for (BatchKernels kernel : kernels) {
+            BatchEvaluator evaluator = new BatchEvaluator(kernel);
+            for (int round = 0; round < rounds; round++) {
+                scoreBatch(games, batch, evaluator, scores);
+            }
+            start = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                scoreBatch(games, batch, evaluator, scores);
+                checksum += scores[round % count];
+            }
+            report("packed " + kernel.getClass().getSimpleName(), (long) count * rounds, System.nanoTime() - start);
+        }
+        System.out.println("checksum: " + checksum);
+    }
+
+    private static void scoreObjects(List<ChessGame> games, TaperedEvaluator tapered, int[] scores) {
+        for (int i = 0; i < games.size(); i++) {
+            ChessGame game = games.get(i);
+            int mobility = MOBILITY_WEIGHT * PositionBatch.mobility(game.getBoard());
+            scores[i] = tapered.evaluate(game) + ((game.getTeamTurn() == ChessGame.TeamColor.WHITE) ? mobility : -mobility);
+        }
+    }
+
+    private static void scoreBatch(List<ChessGame> games, PositionBatch batch, BatchEvaluator evaluator, int[] scores) {
+        batch.clear();
+        for (ChessGame game : games) {
+            batch.add(game);
+        }
+        evaluator.evaluate(batch, scores);
+    }
+
+    /**
+     * Plays random games, keeping a copy of every position reached. A game starts
+     * over when it ends or reaches maxPlies.
+     */
+    static List<ChessGame> randomPositions(int count, int maxPlies, Random random) {
+        List<ChessGame> games = new ArrayList<>(count);
+        ChessGame game = new ChessGame();
+        while (games.size() < count) {
+            MoveList moves = game.generateLegalMoves(0);
+            if (moves.isEmpty() || game.getUndoCount() >= maxPlies) {
+                game = new ChessGame();
+                continue;
+            }
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+            games.add(new ChessGame(game));
+        }
+        return games;
+    }
+
+    private static void report(String label, long positions, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%-32s %,14d positions %8.3f s %,16.0f positions/s%n",
+                label, positions, seconds, positions / seconds);
+    }
+}
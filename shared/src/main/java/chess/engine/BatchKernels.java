@@ -0,0 +1,32 @@
+package chess.engine;
+
+/**
+ * The scoring loop of {@link BatchEvaluator}, with a Vector API version used when
+ * the jdk.incubator.vector module is present and a plain loop version otherwise.
+ * Both give exactly the same scores.
+ */
+interface BatchKernels {
+    /**
+     * Scores the batch's positions from index from up to index to into the same
+     * indexes of scores, from the point of view of the team to move
+     */
+    void score(PositionBatch batch, int from, int to, int[] scores);
+
+    /**
+     * Picks the vector kernels if the module is loaded and the chess.batch.scalar
+     * system property is not set, and the scalar kernels otherwise
+     */
+    static BatchKernels best() {
+        if (!Boolean.getBoolean("chess.batch.scalar")
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // Loaded by name so this class never links against the incubator module when it is missing
+                return (BatchKernels) Class.forName("chess.engine.VectorBatchKernels")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return new ScalarBatchKernels();
+            }
+        }
+        return new ScalarBatchKernels();
+    }
+}
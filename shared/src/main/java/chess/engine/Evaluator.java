@@ -0,0 +1,16 @@
+package chess.engine;
+
+import chess.ChessGame;
+
+/**
+ * Scores a position for the search
+ */
+public interface Evaluator {
+    /**
+     * Scores the game's current position
+     *
+     * @param game the game to score
+     * @return the score in centipawns, from the point of view of the team to move
+     */
+    int evaluate(ChessGame game);
+}
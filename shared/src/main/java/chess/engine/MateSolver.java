@@ -0,0 +1,309 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Fen;
+import chess.InvalidMoveException;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds forced mates with proof-number search.
+ * <p>
+ * The attacking team only tries moves that give check, and the defending team,
+ * always being in check, only has evasions, so the tree stays narrow enough to
+ * look many moves deep. Each node keeps how many more leaves would have to be
+ * proven to show a mate (its proof number) or to show there is none (its
+ * disproof number), and the search always expands a leaf on the path of smallest
+ * numbers. Mates that need a quiet move are not found.
+ * <p>
+ * The number of moves allowed is raised one at a time, so the first mate found
+ * is the shortest, and the line returned has the defender holding out longest.
+ */
+public final class MateSolver {
+    public enum Status {
+        MATE,
+        /**
+         * There is no mate by checks within the number of moves allowed
+         */
+        NO_MATE,
+        /**
+         * The node budget ran out first
+         */
+        UNKNOWN
+    }
+
+    /**
+     * @param mateIn the attacker's moves to mate, or 0 if no mate was found
+     * @param line   the mating line as encoded moves, ending in checkmate
+     * @param nodes  positions created while solving
+     */
+    public record Result(Status status, int mateIn, int[] line, long nodes) {
+        public boolean isMate() {
+            return status == Status.MATE;
+        }
+
+        /**
+         * @return the first move of the line, or null if there is none
+         */
+        public ChessMove getBestMove() {
+            return (line.length == 0) ? null : Move.toChessMove(line[0]);
+        }
+    }
+
+    /**
+     * A position where the team to move could force mate but did not play a move
+     * that still mates as quickly
+     *
+     * @param ply    how many moves into the game the position came
+     * @param played the move that was played instead
+     * @param mate   the mate that was there
+     */
+    public record MissedMate(int ply, ChessMove played, Result mate) {
+    }
+
+    private static final int INFINITE = 1 << 28;
+
+    private final long nodeBudget;
+    private final MoveGenerator generator = new MoveGenerator();
+    private final MoveList scratch = new MoveList();
+    private ChessGame game;
+    private long nodes;
+
+    private static final class Node {
+        final int move;
+        final Node parent;
+        final boolean attacking;
+        // Checks the attacker may still give below this node
+        final int movesLeft;
+        int proof;
+        int disproof;
+        // Plies to mate once proven, with the quickest attack and the longest defense
+        int length;
+        Node[] children;
+        Node best;
+
+        Node(int move, Node parent, boolean attacking, int movesLeft) {
+            this.move = move;
+            this.parent = parent;
+            this.attacking = attacking;
+            this.movesLeft = movesLeft;
+        }
+    }
+
+    /**
+     * @param nodeBudget the most positions one call to solve may create
+     */
+    public MateSolver(long nodeBudget) {
+        this.nodeBudget = nodeBudget;
+    }
+
+    /**
+     * Looks for a mate by the team to move
+     */
+    public Result solve(ChessGame position, int maxMoves) {
+        return solve(position, position.getTeamTurn(), maxMoves);
+    }
+
+    /**
+     * Looks for a mate by the given team. If it is the other team's move, every
+     * reply has to allow a mate for one to be found.
+     *
+     * @param maxMoves the most moves the attacker may take to mate
+     */
+    public Result solve(ChessGame position, ChessGame.TeamColor attacker, int maxMoves) {
+        this.game = new ChessGame(new ChessBoard(position.getBoard()));
+        this.game.setTeamTurn(position.getTeamTurn());
+        this.nodes = 0;
+        for (int moves = 1; moves <= maxMoves; moves++) {
+            Node root = new Node(Move.NONE, null, position.getTeamTurn() == attacker, moves);
+            nodes++;
+            evaluate(root);
+            prove(root);
+            if (root.proof == 0) {
+                return new Result(Status.MATE, moves, line(root), nodes);
+            }
+            if (root.disproof != 0) {
+                return new Result(Status.UNKNOWN, 0, new int[0], nodes);
+            }
+        }
+        return new Result(Status.NO_MATE, 0, new int[0], nodes);
+    }
+
+    private void prove(Node root) {
+        while (root.proof != 0 && root.disproof != 0 && nodes < nodeBudget) {
+            Node node = root;
+            while (node.children != null) {
+                node = select(node);
+                game.makeMove(node.move);
+            }
+            expand(node);
+            while (true) {
+                update(node);
+                if (node == root) {
+                    break;
+                }
+                node = node.parent;
+                game.unmakeMove();
+            }
+        }
+    }
+
+    private static Node select(Node node) {
+        Node selected = null;
+        for (Node child : node.children) {
+            int number = node.attacking ? child.proof : child.disproof;
+            if (selected == null || number < (node.attacking ? selected.proof : selected.disproof)) {
+                selected = child;
+            }
+        }
+        return selected;
+    }
+
+    private void expand(Node node) {
+        MoveList moves = new MoveList();
+        generator.setPosition(game.getBoard(), game.getTeamTurn());
+        if (node.attacking) {
+            generator.generateChecks(moves);
+        } else {
+            generator.generateLegalMoves(moves);
+        }
+        Node[] children = new Node[moves.size()];
+        int movesLeft = node.attacking ? node.movesLeft - 1 : node.movesLeft;
+        for (int i = 0; i < children.length; i++) {
+            Node child = new Node(moves.get(i), node, !node.attacking, movesLeft);
+            game.makeMove(child.move);
+            evaluate(child);
+            game.unmakeMove();
+            children[i] = child;
+        }
+        nodes += children.length;
+        node.children = children;
+    }
+
+    // Sets a new leaf's numbers from how many moves it has
+    private void evaluate(Node node) {
+        ChessGame.TeamColor toMove = game.getTeamTurn();
+        generator.setPosition(game.getBoard(), toMove);
+        if (!node.attacking) {
+            int replies = generator.countLegalMoves();
+            if (replies == 0 || node.movesLeft == 0) {
+                solved(node, replies == 0 && generator.isInCheck());
+            } else {
+                node.proof = replies;
+                node.disproof = 1;
+            }
+            return;
+        }
+        if (node.movesLeft == 0) {
+            solved(node, false);
+            return;
+        }
+        scratch.clear();
+        generator.generateChecks(scratch);
+        if (scratch.isEmpty()) {
+            solved(node, false);
+        } else {
+            node.proof = 1;
+            node.disproof = scratch.size();
+        }
+    }
+
+    private static void solved(Node node, boolean proven) {
+        node.proof = proven ? 0 : INFINITE;
+        node.disproof = proven ? INFINITE : 0;
+    }
+
+    private static void update(Node node) {
+        if (node.children == null || node.proof == 0 || node.disproof == 0) {
+            return;
+        }
+        long proofSum = 0;
+        long disproofSum = 0;
+        int minProof = INFINITE;
+        int minDisproof = INFINITE;
+        Node best = null;
+        for (Node child : node.children) {
+            proofSum += child.proof;
+            disproofSum += child.disproof;
+            minProof = Math.min(minProof, child.proof);
+            minDisproof = Math.min(minDisproof, child.disproof);
+            if (child.proof == 0 && (best == null
+                    || (node.attacking ? child.length < best.length : child.length > best.length))) {
+                best = child;
+            }
+        }
+        if (node.attacking) {
+            node.proof = minProof;
+            node.disproof = (int) Math.min(disproofSum, INFINITE);
+        } else {
+            node.proof = (int) Math.min(proofSum, INFINITE);
+            node.disproof = minDisproof;
+        }
+        // Nothing below a solved node is needed except the line through a proof
+        if (node.proof == 0) {
+            node.best = best;
+            node.length = best.length + 1;
+            if (node.attacking) {
+                node.children = new Node[]{best};
+            }
+        } else if (node.disproof == 0) {
+            node.children = new Node[0];
+        }
+    }
+
+    private static int[] line(Node root) {
+        List<Integer> moves = new ArrayList<>();
+        for (Node node = root.best; node != null; node = node.best) {
+            moves.add(node.move);
+        }
+        return moves.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Replays a game from the start position and reports every move that let a
+     * forced mate go
+     *
+     * @param maxMoves the longest mate to look for at each position
+     * @throws InvalidMoveException if a move is not legal where it was played
+     */
+    public List<MissedMate> findMissedMates(List<ChessMove> moves, int maxMoves) throws InvalidMoveException {
+        List<MissedMate> missed = new ArrayList<>();
+        ChessGame replay = new ChessGame();
+        for (int ply = 0; ply < moves.size(); ply++) {
+            ChessMove move = moves.get(ply);
+            ChessGame.TeamColor mover = replay.getTeamTurn();
+            Result mate = solve(replay, maxMoves);
+            replay.makeMove(move);
+            if (mate.isMate() && !replay.isInCheckmate(replay.getTeamTurn())
+                    && (mate.mateIn() == 1 || !solve(replay, mover, mate.mateIn() - 1).isMate())) {
+                missed.add(new MissedMate(ply, move, mate));
+            }
+        }
+        return missed;
+    }
+
+    /**
+     * Solves a position given as FEN, optionally followed by the most moves to
+     * look for (8 if left out) and the node budget (10 million if left out)
+     */
+    public static void main(String[] args) {
+        ChessGame game = Fen.parse(args[0]);
+        int maxMoves = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+        long budget = (args.length > 2) ? Long.parseLong(args[2]) : 10_000_000;
+        long start = System.nanoTime();
+        Result result = new MateSolver(budget).solve(game, maxMoves);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        StringBuilder line = new StringBuilder();
+        for (int move : result.line()) {
+            line.append(' ').append(Move.toString(move));
+        }
+        System.out.println(result.status() + (result.isMate() ? " in " + result.mateIn() : "")
+                + " nodes " + result.nodes() + " time " + millis + " ms" + (result.isMate() ? " line" + line : ""));
+    }
+}
@@ -0,0 +1,192 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.Fen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of pieces a tablebase covers, written like "KQvK" or "KBNvK", and the
+ * numbering of every placement of those pieces.
+ * <p>
+ * A position's index is built from the team to move, the white king's square, the
+ * black king's square and then each other piece's square in signature order, six
+ * bits each with the team to move highest. Pieces of the same kind can be listed
+ * in either order, so such positions have more than one index.
+ */
+final class Material {
+    private static final ChessPiece.PieceType[] SIGNATURE_ORDER = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.PAWN
+    };
+
+    private final String signature;
+    private final ChessPiece[] pieces;
+    private final int size;
+
+    private Material(String signature, ChessPiece[] pieces) {
+        this.signature = signature;
+        this.pieces = pieces;
+        this.size = 2 << (6 * (2 + pieces.length));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the signature is badly formed or has more
+     *                                  than two pieces besides the kings
+     */
+    static Material parse(String signature) {
+        String[] sides = signature.split("v");
+        if (sides.length != 2 || !sides[0].startsWith("K") || !sides[1].startsWith("K")) {
+            throw new IllegalArgumentException("Not a material signature: " + signature);
+        }
+        List<ChessPiece> pieces = new ArrayList<>();
+        addPieces(pieces, sides[0].substring(1), ChessGame.TeamColor.WHITE, signature);
+        addPieces(pieces, sides[1].substring(1), ChessGame.TeamColor.BLACK, signature);
+        if (pieces.size() > 2) {
+            throw new IllegalArgumentException("Tablebases cover at most four pieces: " + signature);
+        }
+        return new Material(signature, pieces.toArray(new ChessPiece[0]));
+    }
+
+    private static void addPieces(List<ChessPiece> pieces, String letters, ChessGame.TeamColor color,
+                                  String signature) {
+        for (char letter : letters.toCharArray()) {
+            ChessPiece piece = Fen.toPiece(letter);
+            if (Character.isLowerCase(letter) || piece.getPieceType() == ChessPiece.PieceType.KING) {
+                throw new IllegalArgumentException("Not a material signature: " + signature);
+            }
+            pieces.add(ChessPiece.of(color, piece.getPieceType()));
+        }
+    }
+
+    /**
+     * @return the signature of the pieces on a board with one king each, with the
+     * colors swapped if flip is set
+     */
+    static String signatureOf(ChessBoard board, boolean flip) {
+        StringBuilder white = new StringBuilder("K");
+        StringBuilder black = new StringBuilder("K");
+        for (ChessPiece.PieceType type : SIGNATURE_ORDER) {
+            String letter = String.valueOf(Fen.toChar(ChessPiece.of(ChessGame.TeamColor.WHITE, type)));
+            white.append(letter.repeat(Long.bitCount(board.getPieces(ChessGame.TeamColor.WHITE, type))));
+            black.append(letter.repeat(Long.bitCount(board.getPieces(ChessGame.TeamColor.BLACK, type))));
+        }
+        return flip ? black + "v" + white : white + "v" + black;
+    }
+
+    String signature() {
+        return signature;
+    }
+
+    int pieceCount() {
+        return pieces.length;
+    }
+
+    ChessPiece piece(int slot) {
+        return pieces[slot];
+    }
+
+    /**
+     * @return the number of indexes, legal or not
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param squares the white king's square, the black king's square, then each
+     *                other piece's square in signature order
+     */
+    int index(int side, int[] squares) {
+        int index = side;
+        for (int square : squares) {
+            index = (index << 6) | square;
+        }
+        return index;
+    }
+
+    /**
+     * Fills in the squares for an index
+     *
+     * @return the team to move, as an ordinal
+     */
+    int decode(int index, int[] squares) {
+        for (int slot = squares.length - 1; slot >= 0; slot--) {
+            squares[slot] = index & 63;
+            index >>>= 6;
+        }
+        return index;
+    }
+
+    /**
+     * Reads the squares of this material's pieces from a board, flipping the board
+     * vertically and swapping colors if flip is set
+     *
+     * @return false if the board does not hold exactly this material
+     */
+    boolean squaresOf(ChessBoard board, boolean flip, int[] squares) {
+        int mirror = flip ? 56 : 0;
+        ChessGame.TeamColor white = flip ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+        ChessGame.TeamColor black = flip ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        long whiteKing = board.getPieces(white, ChessPiece.PieceType.KING);
+        long blackKing = board.getPieces(black, ChessPiece.PieceType.KING);
+        if (Long.bitCount(whiteKing) != 1 || Long.bitCount(blackKing) != 1) {
+            return false;
+        }
+        squares[0] = Long.numberOfTrailingZeros(whiteKing) ^ mirror;
+        squares[1] = Long.numberOfTrailingZeros(blackKing) ^ mirror;
+        long used = 0;
+        for (int slot = 0; slot < pieces.length; slot++) {
+            ChessGame.TeamColor color = (pieces[slot].getTeamColor() == ChessGame.TeamColor.WHITE) ? white : black;
+            long candidates = board.getPieces(color, pieces[slot].getPieceType()) & ~used;
+            if (candidates == 0) {
+                return false;
+            }
+            int square = Long.numberOfTrailingZeros(candidates);
+            used |= 1L << square;
+            squares[2 + slot] = square ^ mirror;
+        }
+        return Long.bitCount(board.getOccupied()) == 2 + pieces.length;
+    }
+
+    /**
+     * @return false if two pieces share a square or a pawn is on the first or last row
+     */
+    boolean isPlaceable(int[] squares) {
+        long used = 0;
+        for (int slot = 0; slot < squares.length; slot++) {
+            int square = squares[slot];
+            if ((used & (1L << square)) != 0) {
+                return false;
+            }
+            used |= 1L << square;
+            if (slot >= 2 && pieces[slot - 2].getPieceType() == ChessPiece.PieceType.PAWN
+                    && (Bitboards.row(square) == 1 || Bitboards.row(square) == 8)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Puts the pieces on their squares, on a board that should be empty
+     */
+    void place(int[] squares, ChessBoard board) {
+        board.addPiece(squares[0], ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(squares[1], ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        for (int slot = 0; slot < pieces.length; slot++) {
+            board.addPiece(squares[2 + slot], pieces[slot]);
+        }
+    }
+
+    void clear(int[] squares, ChessBoard board) {
+        for (int square : squares) {
+            board.addPiece(square, null);
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+
+/**
+ * Scores a position by counting material
+ */
+public class MaterialEvaluator implements Evaluator {
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    /**
+     * Centipawn values indexed by piece type ordinal. The king is given no value
+     * since both sides always have one.
+     */
+    private static final int[] VALUES = {0, 900, 330, 320, 500, 100};
+
+    public static int value(ChessPiece.PieceType type) {
+        return VALUES[type.ordinal()];
+    }
+
+    @Override
+    public int evaluate(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        int score = 0;
+        for (ChessPiece.PieceType type : TYPES) {
+            int count = Long.bitCount(board.getPieces(ChessGame.TeamColor.WHITE, type))
+                    - Long.bitCount(board.getPieces(ChessGame.TeamColor.BLACK, type));
+            score += count * VALUES[type.ordinal()];
+        }
+        return (game.getTeamTurn() == ChessGame.TeamColor.WHITE) ? score : -score;
+    }
+}
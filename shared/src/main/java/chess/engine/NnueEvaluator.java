@@ -0,0 +1,145 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.Zobrist;
+
+/**
+ * Scores positions with an {@link NnueNetwork}.
+ * <p>
+ * The evaluator listens to the board it last scored and adds or subtracts one
+ * input's weights from each side's accumulator as pieces are added and removed,
+ * so scoring a position only costs the output layer. A king move changes every
+ * input for that side, so that side's accumulator is rebuilt the next time a
+ * position is scored. The evaluator also follows the board's Zobrist key and
+ * rebuilds both accumulators if the board was changed in a way it was not told
+ * about.
+ * <p>
+ * One evaluator follows one board at a time, so each search thread needs its own.
+ */
+public class NnueEvaluator implements Evaluator, ChessBoard.PieceListener {
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+
+    private final NnueNetwork network;
+    private final NnueKernels kernels;
+    private final int hiddenSize;
+    private final short[][] accumulators;
+    private final boolean[] stale = {true, true};
+    private final int[] kingSquares = new int[2];
+    private ChessBoard board;
+    private long key;
+
+    public NnueEvaluator(NnueNetwork network) {
+        this(network, NnueKernels.best());
+    }
+
+    NnueEvaluator(NnueNetwork network, NnueKernels kernels) {
+        this.network = network;
+        this.kernels = kernels;
+        this.hiddenSize = network.getHiddenSize();
+        this.accumulators = new short[2][hiddenSize];
+    }
+
+    /**
+     * @return true if the SIMD kernels are in use
+     */
+    public boolean isVectorized() {
+        return !(kernels instanceof ScalarNnueKernels);
+    }
+
+    @Override
+    public int evaluate(ChessGame game) {
+        ChessBoard gameBoard = game.getBoard();
+        if (gameBoard != board) {
+            follow(gameBoard);
+        }
+        if (key != board.getZobristKey()) {
+            stale[0] = true;
+            stale[1] = true;
+            key = board.getZobristKey();
+        }
+        for (int side = 0; side < 2; side++) {
+            if (stale[side]) {
+                refresh(side);
+            }
+        }
+
+        int toMove = game.getTeamTurn().ordinal();
+        short[] outputWeights = network.outputWeights();
+        long output = network.outputBias()
+                + kernels.clippedDot(accumulators[toMove], outputWeights, 0, hiddenSize, NnueNetwork.ACTIVATION_CLIP)
+                + kernels.clippedDot(accumulators[1 - toMove], outputWeights, hiddenSize, hiddenSize,
+                NnueNetwork.ACTIVATION_CLIP);
+        return (int) (output * NnueNetwork.OUTPUT_SCALE / (NnueNetwork.ACTIVATION_CLIP * NnueNetwork.WEIGHT_SCALE));
+    }
+
+    @Override
+    public void pieceChanged(int square, ChessPiece oldPiece, ChessPiece newPiece) {
+        if (oldPiece != null) {
+            key ^= Zobrist.pieceKey(oldPiece, square);
+            update(oldPiece, square, false);
+        }
+        if (newPiece != null) {
+            key ^= Zobrist.pieceKey(newPiece, square);
+            update(newPiece, square, true);
+        }
+    }
+
+    private void follow(ChessBoard newBoard) {
+        if (board != null && board.getListener() == this) {
+            board.setListener(null);
+        }
+        board = newBoard;
+        board.setListener(this);
+        key = board.getZobristKey();
+        stale[0] = true;
+        stale[1] = true;
+    }
+
+    private void update(ChessPiece piece, int square, boolean added) {
+        if (piece.getPieceType() == ChessPiece.PieceType.KING) {
+            stale[piece.getTeamColor().ordinal()] = true;
+            return;
+        }
+        short[] weights = network.featureWeights();
+        for (int side = 0; side < 2; side++) {
+            if (stale[side]) {
+                continue;
+            }
+            int offset = feature(side, kingSquares[side], piece, square) * hiddenSize;
+            if (added) {
+                kernels.add(accumulators[side], weights, offset, hiddenSize);
+            } else {
+                kernels.subtract(accumulators[side], weights, offset, hiddenSize);
+            }
+        }
+    }
+
+    private void refresh(int side) {
+        ChessGame.TeamColor color = COLORS[side];
+        long king = board.getPieces(color, ChessPiece.PieceType.KING);
+        kingSquares[side] = (king == 0) ? 0 : Long.numberOfTrailingZeros(king);
+
+        short[] accumulator = accumulators[side];
+        System.arraycopy(network.featureBiases(), 0, accumulator, 0, hiddenSize);
+        short[] weights = network.featureWeights();
+        long pieces = board.getOccupied() & ~board.getPieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING)
+                & ~board.getPieces(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            int offset = feature(side, kingSquares[side], board.getPiece(square), square) * hiddenSize;
+            kernels.add(accumulator, weights, offset, hiddenSize);
+            pieces &= pieces - 1;
+        }
+        stale[side] = false;
+    }
+
+    // Black sees the board flipped vertically, so both sides index inputs from their own first row
+    static int feature(int side, int kingSquare, ChessPiece piece, int square) {
+        int flip = (side == 0) ? 0 : 56;
+        int relation = (piece.getTeamColor().ordinal() == side) ? 0 : 5;
+        int type = piece.getPieceType().ordinal() - 1;
+        return (((kingSquare ^ flip) * 10 + relation + type) << 6) | (square ^ flip);
+    }
+}
@@ -0,0 +1,42 @@
+package chess.engine;
+
+/**
+ * The arithmetic inner loops of {@link NnueEvaluator}, with a Vector API version
+ * used when the jdk.incubator.vector module is present and a plain loop version
+ * otherwise
+ */
+interface NnueKernels {
+    /**
+     * Adds length weights starting at offset to the accumulator
+     */
+    void add(short[] accumulator, short[] weights, int offset, int length);
+
+    /**
+     * Subtracts length weights starting at offset from the accumulator
+     */
+    void subtract(short[] accumulator, short[] weights, int offset, int length);
+
+    /**
+     * @return the sum of each accumulator value, clamped to 0..clip, times the
+     * matching weight starting at offset
+     */
+    int clippedDot(short[] accumulator, short[] weights, int offset, int length, int clip);
+
+    /**
+     * Picks the vector kernels if the module is loaded and the chess.nnue.scalar
+     * system property is not set, and the scalar kernels otherwise
+     */
+    static NnueKernels best() {
+        if (!Boolean.getBoolean("chess.nnue.scalar")
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // Loaded by name so this class never links against the incubator module when it is missing
+                return (NnueKernels) Class.forName("chess.engine.VectorNnueKernels")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return new ScalarNnueKernels();
+            }
+        }
+        return new ScalarNnueKernels();
+    }
+}
@@ -0,0 +1,162 @@
+package chess.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * The weights of a HalfKP network: 40960 sparse inputs, one hidden layer of int16
+ * accumulators per side, and a single output.
+ * <p>
+ * An input is on when a piece other than a king stands on a square, and is
+ * indexed by the viewing side's king square, whether the piece is the viewer's
+ * or the opponent's, its type and its square, all from the viewer's side of the
+ * board. The output is the clipped hidden layer of the side to move followed by
+ * the other side's, times the output weights.
+ * <p>
+ * Files are little-endian: the magic "NNUE", a format version, the hidden layer
+ * size, then the input weights grouped by input, the hidden biases, the output
+ * weights (side to move first) as int16 and the output bias as an int32.
+ */
+public final class NnueNetwork {
+    public static final int FEATURES = 64 * 10 * 64;
+    /**
+     * Hidden values are clamped to 0..ACTIVATION_CLIP before the output layer
+     */
+    public static final int ACTIVATION_CLIP = 255;
+    /**
+     * Output weights are stored multiplied by this
+     */
+    public static final int WEIGHT_SCALE = 64;
+    /**
+     * The output, after removing both quantization scales, is multiplied by this
+     * to get centipawns
+     */
+    public static final int OUTPUT_SCALE = 400;
+
+    private static final int MAGIC = 0x45554E4E;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+
+    private final int hiddenSize;
+    private final short[] featureWeights;
+    private final short[] featureBiases;
+    private final short[] outputWeights;
+    private final int outputBias;
+
+    private NnueNetwork(int hiddenSize, short[] featureWeights, short[] featureBiases,
+                        short[] outputWeights, int outputBias) {
+        this.hiddenSize = hiddenSize;
+        this.featureWeights = featureWeights;
+        this.featureBiases = featureBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    public static NnueNetwork load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads a network from a stream, such as a resource bundled on the classpath
+     */
+    public static NnueNetwork load(InputStream input) throws IOException {
+        return read(ByteBuffer.wrap(input.readAllBytes()));
+    }
+
+    private static NnueNetwork read(ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("Not an NNUE network file");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported NNUE network version: " + version);
+        }
+        int hiddenSize = buffer.getInt();
+        if (hiddenSize < 1 || hiddenSize > 4096) {
+            throw new IOException("Bad NNUE hidden layer size: " + hiddenSize);
+        }
+        long expected = 2L * ((long) FEATURES * hiddenSize + hiddenSize + 2L * hiddenSize) + 4;
+        if (buffer.remaining() != expected) {
+            throw new IOException("NNUE network file should have " + expected + " bytes of weights but has "
+                    + buffer.remaining());
+        }
+        short[] featureWeights = new short[FEATURES * hiddenSize];
+        short[] featureBiases = new short[hiddenSize];
+        short[] outputWeights = new short[2 * hiddenSize];
+        buffer.asShortBuffer().get(featureWeights);
+        buffer.position(buffer.position() + 2 * featureWeights.length);
+        buffer.asShortBuffer().get(featureBiases);
+        buffer.position(buffer.position() + 2 * featureBiases.length);
+        buffer.asShortBuffer().get(outputWeights);
+        buffer.position(buffer.position() + 2 * outputWeights.length);
+        return new NnueNetwork(hiddenSize, featureWeights, featureBiases, outputWeights, buffer.getInt());
+    }
+
+    public void save(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES
+                + 2 * (featureWeights.length + featureBiases.length + outputWeights.length) + 4);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(hiddenSize);
+        for (short weight : featureWeights) {
+            buffer.putShort(weight);
+        }
+        for (short bias : featureBiases) {
+            buffer.putShort(bias);
+        }
+        for (short weight : outputWeights) {
+            buffer.putShort(weight);
+        }
+        buffer.putInt(outputBias);
+        Files.write(path, buffer.array());
+    }
+
+    /**
+     * Makes an untrained network with small random weights, for testing and timing
+     */
+    public static NnueNetwork random(int hiddenSize, long seed) {
+        Random random = new Random(seed);
+        short[] featureWeights = new short[FEATURES * hiddenSize];
+        short[] featureBiases = new short[hiddenSize];
+        short[] outputWeights = new short[2 * hiddenSize];
+        for (int i = 0; i < featureWeights.length; i++) {
+            featureWeights[i] = (short) (random.nextInt(17) - 8);
+        }
+        for (int i = 0; i < hiddenSize; i++) {
+            featureBiases[i] = (short) random.nextInt(64);
+        }
+        for (int i = 0; i < outputWeights.length; i++) {
+            outputWeights[i] = (short) (random.nextInt(65) - 32);
+        }
+        return new NnueNetwork(hiddenSize, featureWeights, featureBiases, outputWeights, 0);
+    }
+
+    public int getHiddenSize() {
+        return hiddenSize;
+    }
+
+    short[] featureWeights() {
+        return featureWeights;
+    }
+
+    short[] featureBiases() {
+        return featureBiases;
+    }
+
+    short[] outputWeights() {
+        return outputWeights;
+    }
+
+    int outputBias() {
+        return outputBias;
+    }
+}
@@ -0,0 +1,151 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.Move;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A read-only opening book mapped straight from its file.
+ * <p>
+ * The file is a run of 16-byte big-endian entries sorted by position key, with
+ * each position's entries next to each other:
+ * <pre>
+ * bytes 0-7   position key, as given by {@link ChessGame#getPositionKey()}
+ * bytes 8-9   move, encoded with {@link Move}
+ * bytes 10-11 weight, unsigned
+ * bytes 12-15 learn count
+ * </pre>
+ * Lookups binary search the mapped file, so the book takes no heap and opening
+ * one does not read it. Entries are only read with absolute gets, so one book
+ * can be shared by any number of threads. Use {@link OpeningBookBuilder} to
+ * write one.
+ */
+public final class OpeningBook {
+    static final int ENTRY_BYTES = 16;
+
+    private final MappedByteBuffer buffer;
+    private final int size;
+
+    /**
+     * A move the book knows for a position
+     *
+     * @param move   the move, encoded with {@link Move}
+     * @param weight how good the move has done, higher being better
+     * @param learn  how many games have played it
+     */
+    public record Entry(int move, int weight, int learn) {
+        public ChessMove getMove() {
+            return Move.toChessMove(move);
+        }
+    }
+
+    private OpeningBook(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.size = buffer.capacity() / ENTRY_BYTES;
+    }
+
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length % ENTRY_BYTES != 0 || length > Integer.MAX_VALUE) {
+                throw new IOException("Not an opening book: " + path);
+            }
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, length));
+        }
+    }
+
+    /**
+     * @return the number of entries in the book
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the book's legal moves for the game's current position, best first
+     */
+    public List<Entry> lookup(ChessGame game) {
+        List<Entry> entries = new ArrayList<>();
+        long key = game.getPositionKey();
+        for (int index = firstIndex(key); index < size && keyAt(index) == key; index++) {
+            int offset = index * ENTRY_BYTES;
+            int move = Short.toUnsignedInt(buffer.getShort(offset + 8));
+            // A different position can share a key, so only keep moves that are legal here
+            if (isLegal(game, move)) {
+                entries.add(new Entry(move, Short.toUnsignedInt(buffer.getShort(offset + 10)),
+                        buffer.getInt(offset + 12)));
+            }
+        }
+        entries.sort((a, b) -> Integer.compare(b.weight(), a.weight()));
+        return entries;
+    }
+
+    /**
+     * @return the highest weighted book move for the position, or null if the
+     * position is not in the book
+     */
+    public ChessMove getBestMove(ChessGame game) {
+        List<Entry> entries = lookup(game);
+        return entries.isEmpty() ? null : entries.get(0).getMove();
+    }
+
+    /**
+     * Picks a book move at random with chances in proportion to weight, so bots do
+     * not always play the same opening
+     *
+     * @return the chosen move, or null if the position is not in the book
+     */
+    public ChessMove getWeightedMove(ChessGame game, Random random) {
+        List<Entry> entries = lookup(game);
+        long total = 0;
+        for (Entry entry : entries) {
+            total += entry.weight();
+        }
+        if (total == 0) {
+            return entries.isEmpty() ? null : entries.get(0).getMove();
+        }
+        long pick = (long) (random.nextDouble() * total);
+        for (Entry entry : entries) {
+            pick -= entry.weight();
+            if (pick < 0) {
+                return entry.getMove();
+            }
+        }
+        return entries.get(entries.size() - 1).getMove();
+    }
+
+    private static boolean isLegal(ChessGame game, int move) {
+        ChessPiece piece = game.getBoard().getPiece(Move.from(move));
+        return piece != null && piece.getTeamColor() == game.getTeamTurn()
+                && game.isValidMove(Move.toChessMove(move));
+    }
+
+    private long keyAt(int index) {
+        return buffer.getLong(index * ENTRY_BYTES);
+    }
+
+    // The first entry whose key is not less than the key, or size if there is none
+    private int firstIndex(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keyAt(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
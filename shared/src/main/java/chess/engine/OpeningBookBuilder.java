@@ -0,0 +1,140 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.Move;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the opening moves of finished games and writes them out as an
+ * {@link OpeningBook}.
+ * <p>
+ * Every move in the first few plies of a game is counted for the position it was
+ * played from. A move's weight goes up by 2 for each game its side won and by 1
+ * for each draw, and its learn count goes up by 1 for every game that played it.
+ */
+public final class OpeningBookBuilder {
+    private final int maxPlies;
+    // Position key to each move played there, with its weight and learn count
+    private final Map<Long, Map<Integer, long[]>> positions = new HashMap<>();
+
+    /**
+     * @param maxPlies how many moves from the start of each game to count
+     */
+    public OpeningBookBuilder(int maxPlies) {
+        this.maxPlies = maxPlies;
+    }
+
+    /**
+     * Counts the opening of one game
+     *
+     * @param moves  the game's moves from the start position
+     * @param winner which team won, or null for a draw
+     * @throws InvalidMoveException if a move is not legal where it was played
+     */
+    public void addGame(List<ChessMove> moves, ChessGame.TeamColor winner) throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        int plies = Math.min(maxPlies, moves.size());
+        for (int i = 0; i < plies; i++) {
+            ChessMove move = moves.get(i);
+            ChessGame.TeamColor mover = game.getTeamTurn();
+            long key = game.getPositionKey();
+            int encoded = Move.fromChessMove(move, game.getBoard()) & 0xFFFF;
+            game.makeMove(move);
+
+            long[] counts = positions.computeIfAbsent(key, k -> new HashMap<>())
+                    .computeIfAbsent(encoded, k -> new long[2]);
+            if (winner == null) {
+                counts[0] += 1;
+            } else if (winner == mover) {
+                counts[0] += 2;
+            }
+            counts[1]++;
+        }
+    }
+
+    /**
+     * @return the number of entries the book will have
+     */
+    public int size() {
+        int size = 0;
+        for (Map<Integer, long[]> moves : positions.values()) {
+            size += moves.size();
+        }
+        return size;
+    }
+
+    public void write(Path path) throws IOException {
+        List<long[]> entries = new ArrayList<>(size());
+        for (var position : positions.entrySet()) {
+            for (var move : position.getValue().entrySet()) {
+                entries.add(new long[]{position.getKey(), move.getKey(), move.getValue()[0], move.getValue()[1]});
+            }
+        }
+        entries.sort((a, b) -> (a[0] != b[0]) ? Long.compare(a[0], b[0]) : Long.compare(b[2], a[2]));
+
+        ByteBuffer buffer = ByteBuffer.allocate(entries.size() * OpeningBook.ENTRY_BYTES);
+        for (long[] entry : entries) {
+            buffer.putLong(entry[0]);
+            buffer.putShort((short) entry[1]);
+            buffer.putShort((short) Math.min(entry[2], 0xFFFF));
+            buffer.putInt((int) Math.min(entry[3], Integer.MAX_VALUE));
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Builds a book from a text file with one game per line: the result ("1-0",
+     * "0-1" or "1/2-1/2") and then the moves in the form "e2e4", separated by
+     * spaces. Takes the input file, the book file to write and optionally the
+     * number of plies to count (16 if left out).
+     */
+    public static void main(String[] args) throws IOException, InvalidMoveException {
+        int maxPlies = (args.length > 2) ? Integer.parseInt(args[2]) : 16;
+        OpeningBookBuilder builder = new OpeningBookBuilder(maxPlies);
+        int games = 0;
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(args[0]))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length < 2) {
+                    continue;
+                }
+                ChessGame.TeamColor winner = switch (fields[0]) {
+                    case "1-0" -> ChessGame.TeamColor.WHITE;
+                    case "0-1" -> ChessGame.TeamColor.BLACK;
+                    default -> null;
+                };
+                ChessGame game = new ChessGame();
+                List<ChessMove> moves = new ArrayList<>();
+                for (int i = 1; i < fields.length && moves.size() < maxPlies; i++) {
+                    ChessMove move = Move.toChessMove(Move.parse(fields[i], game.getBoard()));
+                    game.makeMove(move);
+                    moves.add(move);
+                }
+                builder.addGame(moves, winner);
+                games++;
+            }
+        }
+        builder.write(Path.of(args[1]));
+        System.out.println("wrote " + builder.size() + " entries from " + games + " games to " + args[1]);
+    }
+}
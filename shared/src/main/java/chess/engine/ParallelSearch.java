@@ -0,0 +1,158 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Fen;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Searches with several threads at once using Lazy SMP.
+ * <p>
+ * Every thread searches the same root with its own {@link Search}, and they only
+ * cooperate through the shared transposition table: a position one thread has
+ * already searched is cut off for the others. Every other helper runs one ply
+ * deeper than the main thread so the threads spread over different depths. The
+ * main thread's result is the one returned, and helpers stop when it finishes.
+ */
+public final class ParallelSearch {
+    private final TranspositionTable table;
+    private final Search[] searches;
+    private Consumer<SearchResult> listener;
+    private OpeningBook book;
+    private Tablebases tablebases;
+
+    public ParallelSearch(int threads) {
+        this(threads, new TranspositionTable(64), TaperedEvaluator::new);
+    }
+
+    /**
+     * @param evaluators makes one evaluator per thread, since evaluators may keep
+     *                   state between calls
+     */
+    public ParallelSearch(int threads, TranspositionTable table, Supplier<Evaluator> evaluators) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one search thread: " + threads);
+        }
+        this.table = table;
+        searches = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new Search(table, evaluators.get());
+        }
+    }
+
+    public int getThreads() {
+        return searches.length;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Sets a callback that is given the main thread's result of every completed
+     * iteration, with nodes counted across all threads
+     */
+    public void setListener(Consumer<SearchResult> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets a book to answer from without searching while the game is in it
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Sets endgame tables to answer from without searching once the position is
+     * covered by one
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    public SearchResult search(ChessGame position, SearchLimits limits) {
+        SearchResult bookResult = Search.bookResult(book, position);
+        if (bookResult != null) {
+            return bookResult;
+        }
+        SearchResult tablebaseResult = Search.tablebaseResult(tablebases, position);
+        if (tablebaseResult != null) {
+            return tablebaseResult;
+        }
+
+        // Each thread copies the board, so build its bitboards here before they read it
+        ChessGame root = new ChessGame(position);
+        root.getPositionKey();
+
+        long start = System.nanoTime();
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicLong sharedNodes = new AtomicLong();
+        Thread[] helpers = new Thread[searches.length - 1];
+        for (int i = 1; i < searches.length; i++) {
+            Search helper = searches[i];
+            int depthOffset = i % 2;
+            helpers[i - 1] = new Thread(() -> helper.search(root, limits, depthOffset, stop, sharedNodes),
+                    "search-helper-" + i);
+            helpers[i - 1].setDaemon(true);
+            helpers[i - 1].start();
+        }
+
+        Search main = searches[0];
+        main.setListener(listener);
+        SearchResult result;
+        try {
+            result = main.search(root, limits, 0, stop, sharedNodes);
+        } finally {
+            stop.set(true);
+        }
+
+        for (Thread helper : helpers) {
+            try {
+                helper.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        long nodes = 0;
+        for (Search search : searches) {
+            nodes += search.getNodes();
+        }
+        return new SearchResult(result.depth(), result.score(), nodes, System.nanoTime() - start,
+                result.principalVariation());
+    }
+
+    /**
+     * Prints nodes per second for each thread count from 1 up to the number of
+     * processors, doubling each time, searching the same position for the same
+     * time. Takes an optional FEN, milliseconds per run and highest thread count.
+     */
+    public static void main(String[] args) {
+        String fen = (args.length > 0) ? args[0] : Fen.START_POSITION;
+        long millis = (args.length > 1) ? Long.parseLong(args[1]) : 5000;
+        int maxThreads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        ChessGame game = Fen.parse(fen);
+
+        // Untimed run so the JIT has compiled the search before the single thread baseline
+        new ParallelSearch(1).search(game, SearchLimits.time(millis));
+
+        System.out.printf("%-8s %14s %14s %8s %6s%n", "threads", "nodes", "nodes/s", "scaling", "depth");
+        long baseline = 0;
+        for (int doubling = 1; ; doubling *= 2) {
+            int threads = Math.min(doubling, maxThreads);
+            SearchResult result = new ParallelSearch(threads).search(game, SearchLimits.time(millis));
+            if (threads == 1) {
+                baseline = result.nodesPerSecond();
+            }
+            System.out.printf("%-8d %,14d %,14d %7.2fx %6d%n", threads, result.nodes(), result.nodesPerSecond(),
+                    (double) result.nodesPerSecond() / Math.max(1, baseline), result.depth());
+            if (threads == maxThreads) {
+                break;
+            }
+        }
+    }
+}
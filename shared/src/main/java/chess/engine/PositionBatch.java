@@ -0,0 +1,132 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.PieceSquareTables;
+
+/**
+ * Many positions packed column by column for {@link BatchEvaluator}: one array
+ * per piece bitboard and one per packed term, each indexed by position. Scoring
+ * then reads straight down the arrays instead of following board objects.
+ * <p>
+ * The piece-square scores are stored without material, since the material is
+ * counted from the bitboards while scoring. Mobility is the number of squares
+ * white's knights, bishops, rooks and queens attack that are not their own,
+ * minus the same for black.
+ * <p>
+ * Both are worked out here, in scalar code, when a position is added: the
+ * piece-square sums are read off the board, less its material, and mobility
+ * needs an attack lookup per piece. The kernels only count material, taper and
+ * weight mobility in lanes.
+ */
+public final class PositionBatch {
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    private static final ChessPiece.PieceType[] MOBILE_TYPES = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.BISHOP,
+            ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK
+    };
+
+    // Indexed by Bitboards.pieceIndex, then by position
+    final long[][] pieces;
+    final int[] middlegame;
+    final int[] endgame;
+    final int[] mobility;
+    // 1 if white is to move, -1 if black is
+    final int[] sign;
+    private int size;
+
+    public PositionBatch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        pieces = new long[12][capacity];
+        middlegame = new int[capacity];
+        endgame = new int[capacity];
+        mobility = new int[capacity];
+        sign = new int[capacity];
+    }
+
+    /**
+     * Packs the game's current position
+     *
+     * @return the position's index in the batch
+     */
+    public int add(ChessGame game) {
+        return add(game.getBoard(), game.getTeamTurn());
+    }
+
+    /**
+     * Packs a position
+     *
+     * @return the position's index in the batch
+     * @throws IllegalStateException if the batch is full
+     */
+    public int add(ChessBoard board, ChessGame.TeamColor toMove) {
+        if (size == sign.length) {
+            throw new IllegalStateException("Batch is full at " + size + " positions");
+        }
+        int index = size++;
+        int materialMiddlegame = 0;
+        int materialEndgame = 0;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            int direction = (color == ChessGame.TeamColor.WHITE) ? 1 : -1;
+            for (ChessPiece.PieceType type : TYPES) {
+                long bitboard = board.getPieces(color, type);
+                pieces[Bitboards.pieceIndex(color, type)][index] = bitboard;
+                materialMiddlegame += direction * Long.bitCount(bitboard) * PieceSquareTables.middlegameValue(type);
+                materialEndgame += direction * Long.bitCount(bitboard) * PieceSquareTables.endgameValue(type);
+            }
+        }
+        middlegame[index] = board.getMiddlegameScore() - materialMiddlegame;
+        endgame[index] = board.getEndgameScore() - materialEndgame;
+        mobility[index] = mobility(board);
+        sign[index] = (toMove == ChessGame.TeamColor.WHITE) ? 1 : -1;
+        return index;
+    }
+
+    /**
+     * @return white's mobility minus black's, as packed by {@link #add}
+     */
+    static int mobility(ChessBoard board) {
+        return mobility(board, ChessGame.TeamColor.WHITE) - mobility(board, ChessGame.TeamColor.BLACK);
+    }
+
+    private static int mobility(ChessBoard board, ChessGame.TeamColor color) {
+        long own = board.getPieces(color);
+        long occupied = board.getOccupied();
+        int count = 0;
+        for (ChessPiece.PieceType type : MOBILE_TYPES) {
+            long pieces = board.getPieces(color, type);
+            while (pieces != 0) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                count += Long.bitCount(Bitboards.attacks(type, color, square, occupied) & ~own);
+                pieces &= pieces - 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the packed mobility of a position, white's minus black's
+     */
+    public int getMobility(int index) {
+        return mobility[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return sign.length;
+    }
+
+    /**
+     * Empties the batch so it can be packed again without allocating
+     */
+    public void clear() {
+        size = 0;
+    }
+}
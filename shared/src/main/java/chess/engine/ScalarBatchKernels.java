@@ -0,0 +1,25 @@
+package chess.engine;
+
+import chess.PieceSquareTables;
+
+final class ScalarBatchKernels implements BatchKernels {
+    @Override
+    public void score(PositionBatch batch, int from, int to, int[] scores) {
+        for (int i = from; i < to; i++) {
+            int middlegame = batch.middlegame[i];
+            int endgame = batch.endgame[i];
+            int phase = 0;
+            for (int type = 0; type < 6; type++) {
+                int white = Long.bitCount(batch.pieces[type][i]);
+                int black = Long.bitCount(batch.pieces[6 + type][i]);
+                middlegame += (white - black) * BatchEvaluator.MIDDLEGAME_VALUES[type];
+                endgame += (white - black) * BatchEvaluator.ENDGAME_VALUES[type];
+                phase += (white + black) * BatchEvaluator.PHASES[type];
+            }
+            phase = Math.min(phase, PieceSquareTables.MAX_PHASE);
+            int tapered = (middlegame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase))
+                    / PieceSquareTables.MAX_PHASE;
+            scores[i] = (tapered + batch.mobility[i] * BatchEvaluator.MOBILITY_WEIGHT) * batch.sign[i];
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package chess.engine;
+
+final class ScalarNnueKernels implements NnueKernels {
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void subtract(short[] accumulator, short[] weights, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public int clippedDot(short[] accumulator, short[] weights, int offset, int length, int clip) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            int activation = Math.min(Math.max(accumulator[i], 0), clip);
+            sum += activation * weights[offset + i];
+        }
+        return sum;
+    }
+}
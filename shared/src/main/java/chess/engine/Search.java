@@ -0,0 +1,507 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.Fen;
+import chess.Move;
+import chess.MoveList;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Picks a move with negamax alpha-beta search.
+ * <p>
+ * The search deepens one ply at a time until it reaches a limit, and each
+ * iteration orders moves from the transposition table, then captures by most
+ * valuable victim and least valuable attacker, then killer moves, then quiet
+ * moves by history. Captures are searched past the nominal depth until the
+ * position is quiet.
+ * <p>
+ * A position that repeats one seen since the last capture or pawn move, or that
+ * reaches the fifty-move rule, scores as a draw. Positions from before the
+ * search count, so the search sees the same draws the game enforces.
+ * <p>
+ * A search works on its own copy of the game, so the caller's game is not
+ * changed. One Search should only run one search at a time; see
+ * {@link ParallelSearch} for using several threads.
+ */
+public final class Search {
+    /**
+     * The score for giving mate right now. Mate in n plies scores MATE - n, and
+     * being mated scores the negative.
+     */
+    public static final int MATE = 30000;
+    public static final int MAX_PLY = 128;
+
+    private static final int INFINITY = 32000;
+    private static final int TABLE_MOVE_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 24;
+    private static final int KILLER_SCORE = 1 << 22;
+    private static final int HISTORY_LIMIT = 1 << 20;
+    private static final int[] ORDER_RANKS = {6, 5, 3, 2, 4, 1};
+    private static final int POLL_INTERVAL = 1024;
+
+    private final TranspositionTable table;
+    private final Evaluator evaluator;
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final int[][][] history = new int[2][64][64];
+    private final int[][] moveScores = new int[MAX_PLY + 1][];
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+
+    private ChessGame game;
+    private SearchLimits limits;
+    private Consumer<SearchResult> listener;
+    private OpeningBook book;
+    private Tablebases tablebases;
+    private long nodes;
+    private long startNanos;
+    private long deadline;
+    private boolean stopped;
+
+    // Set when this search is one of several threads sharing a table
+    private AtomicBoolean sharedStop;
+    private AtomicLong sharedNodes;
+
+    public Search() {
+        this(new TranspositionTable(16), new TaperedEvaluator());
+    }
+
+    public Search(TranspositionTable table, Evaluator evaluator) {
+        this.table = table;
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Sets a callback that is given the result of every completed iteration
+     */
+    public void setListener(Consumer<SearchResult> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets a book to answer from without searching while the game is in it
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Sets endgame tables to answer from without searching once the position is
+     * covered by one
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+
+    /**
+     * Searches the game's current position for the team to move
+     *
+     * @return the result of the deepest completed iteration, or a result of depth 0
+     * holding the book or tablebase move if the position is in the opening book or
+     * an endgame table
+     */
+    public SearchResult search(ChessGame position, SearchLimits limits) {
+        SearchResult bookResult = bookResult(book, position);
+        if (bookResult != null) {
+            return bookResult;
+        }
+        SearchResult tablebaseResult = tablebaseResult(tablebases, position);
+        if (tablebaseResult != null) {
+            return tablebaseResult;
+        }
+        return search(position, limits, 0, null, null);
+    }
+
+    static SearchResult bookResult(OpeningBook book, ChessGame position) {
+        if (book == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        ChessMove move = book.getBestMove(position);
+        if (move == null) {
+            return null;
+        }
+        int encoded = Move.fromChessMove(move, position.getBoard());
+        return new SearchResult(0, 0, 0, System.nanoTime() - start, new int[]{encoded});
+    }
+
+    static SearchResult tablebaseResult(Tablebases tablebases, ChessGame position) {
+        if (tablebases == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        Tablebases.Probe probe = tablebases.probe(position);
+        if (probe == null) {
+            return null;
+        }
+        // The tables ignore the halfmove clock, so a mate the fifty-move rule would
+        // cut off is left to the search, which scores that draw itself
+        if (!probe.isDraw() && position.getHalfmoveClock() + probe.plies() > ChessGame.FIFTY_MOVE_PLIES) {
+            return null;
+        }
+        int move = tablebases.bestMove(position.getBoard(), position.getTeamTurn());
+        if (move == Move.NONE) {
+            return null;
+        }
+        int score = switch (probe.outcome()) {
+            case WIN -> MATE - probe.plies();
+            case LOSS -> -(MATE - probe.plies());
+            case DRAW -> 0;
+        };
+        return new SearchResult(0, score, 0, System.nanoTime() - start, new int[]{move});
+    }
+
+    /**
+     * Runs as one thread of a parallel search. Every iteration searches depthOffset
+     * plies deeper than usual so threads spread over different depths, and the
+     * search stops as soon as stop is set. Node counts are added to sharedNodes as
+     * the search goes, and the node limit applies to that total.
+     */
+    SearchResult search(ChessGame position, SearchLimits limits, int depthOffset,
+                        AtomicBoolean stop, AtomicLong sharedNodes) {
+        this.sharedStop = stop;
+        this.sharedNodes = sharedNodes;
+        game = new ChessGame(position);
+        this.limits = limits;
+        nodes = 0;
+        stopped = false;
+        startNanos = System.nanoTime();
+        deadline = (limits.millis() > 0) ? startNanos + limits.millis() * 1_000_000 : 0;
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, Move.NONE);
+        }
+        for (int[][] side : history) {
+            for (int[] from : side) {
+                Arrays.fill(from, 0);
+            }
+        }
+
+        MoveList rootMoves = game.generateLegalMoves(0);
+        if (rootMoves.isEmpty()) {
+            int score = game.isInCheck(game.getTeamTurn()) ? -MATE : 0;
+            return new SearchResult(0, score, 0, System.nanoTime() - startNanos, new int[0]);
+        }
+        int firstMove = rootMoves.get(0);
+
+        int maxDepth = (limits.depth() > 0) ? Math.min(limits.depth(), MAX_PLY - 1) : MAX_PLY - 1;
+        SearchResult result = null;
+        for (int iteration = 1; iteration <= maxDepth; iteration++) {
+            int depth = Math.min(iteration + depthOffset, maxDepth);
+            int score = negamax(depth, 0, -INFINITY, INFINITY);
+            if (stopped) {
+                break;
+            }
+            long totalNodes = (sharedNodes == null) ? nodes : sharedNodes.get() + (nodes % POLL_INTERVAL);
+            result = new SearchResult(depth, score, totalNodes, System.nanoTime() - startNanos,
+                    Arrays.copyOf(pv[0], pvLength[0]));
+            if (listener != null) {
+                listener.accept(result);
+            }
+            if (depth == maxDepth || (result.isMate() && Search.MATE - Math.abs(score) <= depth)) {
+                break;
+            }
+        }
+
+        if (result == null) {
+            int[] line = (pvLength[0] > 0) ? Arrays.copyOf(pv[0], pvLength[0]) : new int[]{firstMove};
+            result = new SearchResult(0, 0, nodes, System.nanoTime() - startNanos, line);
+        }
+        return result;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        if (depth <= 0) {
+            return quiescence(ply, alpha, beta);
+        }
+        pvLength[ply] = ply;
+        if (countNode()) {
+            return 0;
+        }
+        if (ply > 0 && game.getRepetitionCount() > 1) {
+            return 0;
+        }
+        if (ply > 0 && game.isFiftyMoveDraw()) {
+            // Mate on the hundredth ply still counts
+            boolean mated = game.isInCheck(game.getTeamTurn()) && game.generateLegalMoves(ply).isEmpty();
+            return mated ? -MATE + ply : 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(game);
+        }
+
+        long key = game.getPositionKey();
+        int tableMove = Move.NONE;
+        long entry = table.probe(key);
+        if (entry != 0) {
+            tableMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        MoveList moves = game.generateLegalMoves(ply);
+        if (moves.isEmpty()) {
+            return game.isInCheck(game.getTeamTurn()) ? -MATE + ply : 0;
+        }
+        int[] scores = scoreMoves(moves, ply, tableMove);
+        int side = game.getTeamTurn().ordinal();
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = pickNext(moves, scores, i);
+            game.makeMove(move);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            game.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score <= bestScore) {
+                continue;
+            }
+            bestScore = score;
+            bestMove = move;
+            if (score > alpha) {
+                alpha = score;
+                updatePv(ply, move);
+            }
+            if (score >= beta) {
+                if (!Move.isCapture(move)) {
+                    rememberQuietCutoff(move, ply, side, depth);
+                }
+                break;
+            }
+        }
+
+        int bound;
+        if (bestScore >= beta) {
+            bound = TranspositionTable.LOWER;
+        } else if (bestScore > originalAlpha) {
+            bound = TranspositionTable.EXACT;
+        } else {
+            bound = TranspositionTable.UPPER;
+        }
+        table.store(key, bestMove, toTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    // Searches captures and promotions until the position is quiet, or every move when in check
+    private int quiescence(int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        if (countNode()) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(game);
+        }
+
+        boolean inCheck = game.isInCheck(game.getTeamTurn());
+        int bestScore = -INFINITY;
+        if (!inCheck) {
+            bestScore = evaluator.evaluate(game);
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+            alpha = Math.max(alpha, bestScore);
+        }
+
+        MoveList moves = game.generateLegalMoves(ply);
+        if (moves.isEmpty()) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        int[] scores = scoreMoves(moves, ply, Move.NONE);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = pickNext(moves, scores, i);
+            if (!inCheck && scores[i] < CAPTURE_SCORE) {
+                break;
+            }
+            game.makeMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            game.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score <= bestScore) {
+                continue;
+            }
+            bestScore = score;
+            if (score > alpha) {
+                alpha = score;
+                updatePv(ply, move);
+            }
+            if (score >= beta) {
+                break;
+            }
+        }
+        return bestScore;
+    }
+
+    /**
+     * @return positions this search has visited, not counting other threads
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    // Counts a node and returns true once the search has run out of nodes or time
+    private boolean countNode() {
+        nodes++;
+        if (sharedNodes == null && limits.nodes() > 0 && nodes >= limits.nodes()) {
+            stopped = true;
+        }
+        if (nodes % POLL_INTERVAL == 0) {
+            if (deadline != 0 && System.nanoTime() >= deadline) {
+                stopped = true;
+            }
+            if (sharedStop != null && sharedStop.get()) {
+                stopped = true;
+            }
+            if (sharedNodes != null) {
+                long totalNodes = sharedNodes.addAndGet(POLL_INTERVAL);
+                if (limits.nodes() > 0 && totalNodes >= limits.nodes()) {
+                    stopped = true;
+                }
+            }
+        }
+        return stopped;
+    }
+
+    private int[] scoreMoves(MoveList moves, int ply, int tableMove) {
+        int[] scores = moveScores[ply];
+        if (scores == null || scores.length < moves.size()) {
+            scores = new int[Math.max(256, moves.size())];
+            moveScores[ply] = scores;
+        }
+        ChessBoard board = game.getBoard();
+        int side = game.getTeamTurn().ordinal();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int from = Move.from(move);
+            int to = Move.to(move);
+            if (move == tableMove) {
+                scores[i] = TABLE_MOVE_SCORE;
+            } else if (Move.isCapture(move) || Move.promotion(move) == ChessPiece.PieceType.QUEEN) {
+                int victim = Move.isCapture(move) ? ORDER_RANKS[board.getPiece(to).getPieceType().ordinal()] : 0;
+                int attacker = ORDER_RANKS[board.getPiece(from).getPieceType().ordinal()];
+                int promotion = Move.isPromotion(move) ? ORDER_RANKS[ChessPiece.PieceType.QUEEN.ordinal()] : 0;
+                scores[i] = CAPTURE_SCORE + (victim + promotion) * 8 - attacker;
+            } else if (move == killers[ply][0]) {
+                scores[i] = KILLER_SCORE + 1;
+            } else if (move == killers[ply][1]) {
+                scores[i] = KILLER_SCORE;
+            } else {
+                scores[i] = history[side][from][to];
+            }
+        }
+        return scores;
+    }
+
+    // Selection sort one step at a time, since a cutoff usually comes before the list is used up
+    private static int pickNext(MoveList moves, int[] scores, int index) {
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            int move = moves.get(best);
+            moves.set(best, moves.get(index));
+            moves.set(index, move);
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+        return moves.get(index);
+    }
+
+    private void rememberQuietCutoff(int move, int ply, int side, int depth) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] fromHistory = history[side][Move.from(move)];
+        fromHistory[Move.to(move)] += depth * depth;
+        if (fromHistory[Move.to(move)] >= HISTORY_LIMIT) {
+            for (int[] row : history[side]) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] /= 2;
+                }
+            }
+        }
+    }
+
+    private void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        int childLength = pvLength[ply + 1];
+        if (childLength > ply + 1) {
+            System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, childLength - ply - 1);
+        } else {
+            childLength = ply + 1;
+        }
+        pvLength[ply] = childLength;
+    }
+
+    // Mate scores are stored relative to the position rather than the root
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Searches a position and prints each iteration. Takes a FEN (the start
+     * position if left out) and a limit such as "depth 8", "nodes 1000000" or
+     * "millis 5000" (5 seconds if left out).
+     */
+    public static void main(String[] args) {
+        String fen = Fen.START_POSITION;
+        SearchLimits limits = SearchLimits.time(5000);
+        int i = 0;
+        if (args.length % 2 == 1) {
+            fen = args[0];
+            i = 1;
+        }
+        for (; i + 1 < args.length; i += 2) {
+            long value = Long.parseLong(args[i + 1]);
+            limits = switch (args[i]) {
+                case "depth" -> SearchLimits.depth((int) value);
+                case "nodes" -> SearchLimits.nodes(value);
+                case "millis" -> SearchLimits.time(value);
+                default -> throw new IllegalArgumentException("Unknown limit: " + args[i]);
+            };
+        }
+
+        Search search = new Search();
+        search.setListener(System.out::println);
+        SearchResult result = search.search(Fen.parse(fen), limits);
+        System.out.println("bestmove " + Move.toString(result.bestMove()));
+    }
+}
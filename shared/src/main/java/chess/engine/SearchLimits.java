@@ -0,0 +1,32 @@
+package chess.engine;
+
+/**
+ * When a search should stop. A limit of 0 means that limit is not used, and the
+ * search stops at whichever used limit it reaches first.
+ *
+ * @param depth  the deepest iteration to run
+ * @param nodes  the most positions to visit
+ * @param millis the most wall-clock time to spend
+ */
+public record SearchLimits(int depth, long nodes, long millis) {
+    public SearchLimits {
+        if (depth < 0 || nodes < 0 || millis < 0) {
+            throw new IllegalArgumentException("Search limits cannot be negative");
+        }
+        if (depth == 0 && nodes == 0 && millis == 0) {
+            throw new IllegalArgumentException("A search needs at least one limit");
+        }
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(0, nodes, 0);
+    }
+
+    public static SearchLimits time(long millis) {
+        return new SearchLimits(0, 0, millis);
+    }
+}
@@ -0,0 +1,63 @@
+package chess.engine;
+
+import chess.ChessMove;
+import chess.Move;
+
+/**
+ * The outcome of a search iteration
+ *
+ * @param depth              the iteration depth that was completed
+ * @param score              the score in centipawns for the team to move, or a
+ *                           mate score as described in {@link Search#MATE}
+ * @param nodes              positions visited so far, quiescence included
+ * @param nanos              time spent so far
+ * @param principalVariation the expected line of play, as encoded moves
+ */
+public record SearchResult(int depth, int score, long nodes, long nanos, int[] principalVariation) {
+
+    /**
+     * @return the encoded best move, or {@link Move#NONE} if there are no legal moves
+     */
+    public int bestMove() {
+        return (principalVariation.length == 0) ? Move.NONE : principalVariation[0];
+    }
+
+    public ChessMove getBestMove() {
+        return (principalVariation.length == 0) ? null : Move.toChessMove(principalVariation[0]);
+    }
+
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    /**
+     * @return moves until mate, negative if the team to move is being mated, or 0
+     * if the score is not a mate score
+     */
+    public int mateIn() {
+        if (!isMate()) {
+            return 0;
+        }
+        int plies = Search.MATE - Math.abs(score);
+        return (score > 0) ? (plies + 1) / 2 : -(plies / 2);
+    }
+
+    public long nodesPerSecond() {
+        return (nanos == 0) ? 0 : nodes * 1_000_000_000L / nanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder line = new StringBuilder();
+        line.append("depth ").append(depth);
+        line.append(isMate() ? " mate " + mateIn() : " cp " + score);
+        line.append(" nodes ").append(nodes);
+        line.append(" nps ").append(nodesPerSecond());
+        line.append(" time ").append(nanos / 1_000_000);
+        line.append(" pv");
+        for (int move : principalVariation) {
+            line.append(' ').append(Move.toString(move));
+        }
+        return line.toString();
+    }
+}
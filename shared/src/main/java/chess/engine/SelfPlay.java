@@ -0,0 +1,172 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.MoveList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays engine games against itself on several threads and writes the positions
+ * to a {@link TrainingFile} for tuning the evaluation.
+ * <p>
+ * Each game starts with a few random moves so games do not repeat, then both
+ * teams play the search's best move. Positions are kept with their search score
+ * until the game ends, and then written together with its result. Positions in
+ * check and positions with a mate score are left out, since they say little
+ * about what a quiet position is worth. A game still going after
+ * {@link #MAX_PLIES} plies is scored as a draw.
+ */
+public final class SelfPlay {
+    static final int MAX_PLIES = 400;
+
+    private final int threads;
+    private final SearchLimits limits;
+    private final int randomPlies;
+    private final long seed;
+
+    /**
+     * The totals of a run
+     *
+     * @param perThread positions per second for each thread, for sizing runs by core count
+     */
+    public record Stats(int games, long positions, long nanos, int threads, double positionsPerSecond,
+                        double perThread) {
+    }
+
+    /**
+     * @param limits      how long to search each move
+     * @param randomPlies how many random moves start each game
+     * @param seed        seeds the random moves, so a run can be repeated
+     */
+    public SelfPlay(int threads, SearchLimits limits, int randomPlies, long seed) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread: " + threads);
+        }
+        this.threads = threads;
+        this.limits = limits;
+        this.randomPlies = randomPlies;
+        this.seed = seed;
+    }
+
+    /**
+     * Plays the games and appends their positions to the writer. If a worker
+     * fails, the others stop taking games and its exception is rethrown here.
+     */
+    public Stats run(int games, TrainingFile.Writer writer) throws IOException {
+        AtomicInteger nextGame = new AtomicInteger();
+        AtomicLong positions = new AtomicLong();
+        Thread[] workers = new Thread[threads];
+        // The first failure in any worker, which stops the others and is rethrown
+        Exception[] failure = new Exception[1];
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                Search search = new Search(new TranspositionTable(16), new TaperedEvaluator());
+                ByteBuffer records = ByteBuffer.allocate(MAX_PLIES * TrainingFile.RECORD_BYTES);
+                try {
+                    for (int game = nextGame.getAndIncrement(); game < games; game = nextGame.getAndIncrement()) {
+                        records.clear();
+                        playGame(search, new Random(seed + game), records);
+                        records.flip();
+                        positions.addAndGet(records.remaining() / TrainingFile.RECORD_BYTES);
+                        writer.append(records);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    synchronized (failure) {
+                        if (failure[0] == null) {
+                            failure[0] = e;
+                        }
+                    }
+                    nextGame.set(games);
+                }
+            }, "self-play-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for self-play games", e);
+            }
+        }
+        if (failure[0] instanceof IOException e) {
+            throw e;
+        }
+        if (failure[0] instanceof RuntimeException e) {
+            throw e;
+        }
+        long nanos = System.nanoTime() - start;
+        double perSecond = positions.get() * 1e9 / Math.max(nanos, 1);
+        return new Stats(games, positions.get(), nanos, threads, perSecond, perSecond / threads);
+    }
+
+    /**
+     * Plays one game, adding a record for every kept position once the result is known
+     */
+    void playGame(Search search, Random random, ByteBuffer records) {
+        ChessGame game = new ChessGame();
+        int[] moves = new int[MAX_PLIES];
+        int[] scores = new int[MAX_PLIES];
+        boolean[] kept = new boolean[MAX_PLIES];
+        int plies = 0;
+        int result = 0;
+        for (; plies < MAX_PLIES; plies++) {
+            ChessGame.GameStatus status = game.getGameStatus(game.getTeamTurn());
+            if (status == ChessGame.GameStatus.CHECKMATE) {
+                result = (game.getTeamTurn() == ChessGame.TeamColor.WHITE) ? -1 : 1;
+                break;
+            }
+            if (status != ChessGame.GameStatus.NORMAL && status != ChessGame.GameStatus.CHECK) {
+                break;
+            }
+            if (plies < randomPlies) {
+                MoveList legal = game.generateLegalMoves(0);
+                moves[plies] = legal.get(random.nextInt(legal.size()));
+            } else {
+                SearchResult searched = search.search(game, limits);
+                moves[plies] = searched.bestMove();
+                scores[plies] = searched.score();
+                kept[plies] = status == ChessGame.GameStatus.NORMAL && !searched.isMate();
+            }
+            game.makeMove(moves[plies]);
+        }
+
+        // Replay the game to write the kept positions, now the result is known
+        ChessGame replay = new ChessGame();
+        for (int ply = 0; ply < plies; ply++) {
+            if (kept[ply]) {
+                TrainingFile.putRecord(records, replay, result, scores[ply], ply);
+            }
+            replay.makeMove(moves[ply]);
+        }
+    }
+
+    /**
+     * Runs self-play and prints the throughput. Takes the file to write, and
+     * optionally the number of games (100), threads (all cores), nodes searched per
+     * move (5000) and random opening moves (8).
+     */
+    public static void main(String[] args) throws IOException {
+        Path path = Path.of(args[0]);
+        int games = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+        int threads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long nodes = (args.length > 3) ? Long.parseLong(args[3]) : 5000;
+        int randomPlies = (args.length > 4) ? Integer.parseInt(args[4]) : 8;
+
+        SelfPlay selfPlay = new SelfPlay(threads, SearchLimits.nodes(nodes), randomPlies, 1);
+        Stats stats;
+        try (TrainingFile.Writer writer = TrainingFile.create(path)) {
+            stats = selfPlay.run(games, writer);
+        }
+        System.out.printf("games %d positions %,d time %.1f s threads %d%n",
+                stats.games(), stats.positions(), stats.nanos() / 1e9, stats.threads());
+        System.out.printf("%,.0f positions/s, %,.0f positions/s per thread%n",
+                stats.positionsPerSecond(), stats.perThread());
+    }
+}
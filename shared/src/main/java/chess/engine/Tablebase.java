@@ -0,0 +1,111 @@
+package chess.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The distance to mate of every position with one set of pieces, such as "KQvK".
+ * <p>
+ * A table is one signed byte per {@link Material} index, from the view of the team
+ * to move: 0 is a draw, n &gt; 0 wins by mating in n plies, -(n + 1) loses by being
+ * mated in n plies, and -128 marks an index that is not a legal position. Files
+ * hold nothing but those bytes and are named after the signature, like
+ * "KQvK.tb". Use {@link TablebaseGenerator} to build one and {@link Tablebases}
+ * to probe it.
+ */
+public final class Tablebase {
+    static final int DRAW = 0;
+    static final int ILLEGAL = -128;
+    /**
+     * The most plies a table can record
+     */
+    static final int MAX_PLIES = 126;
+    static final String SUFFIX = ".tb";
+
+    private final Material material;
+    private final ByteBuffer data;
+
+    Tablebase(Material material, ByteBuffer data) {
+        this.material = material;
+        this.data = data;
+    }
+
+    /**
+     * Maps a table file, which is not read until it is probed
+     *
+     * @throws IOException if the file name is not a signature or its size does not match
+     */
+    public static Tablebase open(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        if (!name.endsWith(SUFFIX)) {
+            throw new IOException("Not a tablebase file: " + path);
+        }
+        Material material;
+        try {
+            material = Material.parse(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Not a tablebase file: " + path, e);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() != material.size()) {
+                throw new IOException(path + " should have " + material.size() + " bytes but has " + channel.size());
+            }
+            return new Tablebase(material, channel.map(FileChannel.MapMode.READ_ONLY, 0, material.size()));
+        }
+    }
+
+    /**
+     * Writes the table into a directory, named after its signature
+     *
+     * @return the file written
+     */
+    public Path write(Path directory) throws IOException {
+        Path path = directory.resolve(getSignature() + SUFFIX);
+        ByteBuffer buffer = data.duplicate().clear();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        return path;
+    }
+
+    public String getSignature() {
+        return material.signature();
+    }
+
+    Material material() {
+        return material;
+    }
+
+    int value(int index) {
+        return data.get(index);
+    }
+
+    static int win(int plies) {
+        return plies;
+    }
+
+    static int loss(int plies) {
+        return -plies - 1;
+    }
+
+    static boolean isWin(int value) {
+        return value > 0;
+    }
+
+    static boolean isLoss(int value) {
+        return value < 0 && value != ILLEGAL;
+    }
+
+    /**
+     * @return the plies to mate for a win or loss
+     */
+    static int plies(int value) {
+        return (value > 0) ? value : -value - 1;
+    }
+}
@@ -0,0 +1,441 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Builds a {@link Tablebase} by retrograde analysis.
+ * <p>
+ * A first pass looks at every index once: it marks illegal placements, finds the
+ * checkmates, counts each position's moves that stay within the material, and
+ * scores the moves that leave it (captures and promotions) from tables that were
+ * built earlier. After that the table is filled in one ply at a time. The
+ * positions decided on the last ply are walked backwards to every position that
+ * could have moved into them: a move into a lost position wins, and a position
+ * whose moves have all been found to lose is lost. Positions never decided are
+ * draws.
+ * <p>
+ * Both passes split their work over a fork/join pool. Tables take one byte per
+ * index, plus two more per index while they are being built.
+ */
+public final class TablebaseGenerator {
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final ChessGame.TeamColor[] COLORS = ChessGame.TeamColor.values();
+    private static final int CHUNK = 1 << 12;
+    // Marks a position that can reach a draw by leaving the material
+    private static final byte EXIT_DRAW = Byte.MIN_VALUE;
+
+    private final Material material;
+    private final Tablebases dependencies;
+    private final byte[] values;
+    // Moves within the material not yet known to lose
+    private final byte[] remaining;
+    // The best result of leaving the material: a win in n plies as n, a loss in n plies as -n, or EXIT_DRAW
+    private final byte[] exits;
+    private final List<IndexList> pending = new ArrayList<>();
+
+    private TablebaseGenerator(Material material, Tablebases dependencies) {
+        this.material = material;
+        this.dependencies = dependencies;
+        this.values = new byte[material.size()];
+        this.remaining = new byte[material.size()];
+        this.exits = new byte[material.size()];
+        for (int level = 0; level <= Tablebase.MAX_PLIES; level++) {
+            pending.add(new IndexList());
+        }
+    }
+
+    /**
+     * Builds the table for a signature such as "KRvK"
+     *
+     * @param dependencies tables for the material reached by captures and
+     *                     promotions; "KPvK" needs "KQvK" and "KRvK", for example
+     * @throws IllegalStateException if a table it depends on is missing
+     */
+    public static Tablebase generate(String signature, Tablebases dependencies, ForkJoinPool pool) {
+        TablebaseGenerator generator = new TablebaseGenerator(Material.parse(signature), dependencies);
+        generator.run(pool);
+        return new Tablebase(generator.material, ByteBuffer.wrap(generator.values));
+    }
+
+    private void run(ForkJoinPool pool) {
+        pool.invoke(new Pass(null, 0, material.size(), false, 0, null));
+
+        IndexList decided = new IndexList();
+        for (int index = 0; index < values.length; index++) {
+            if (values[index] == Tablebase.loss(0)) {
+                decided.add(index);
+            } else if (values[index] == Tablebase.DRAW) {
+                queueExit(index);
+            }
+        }
+
+        for (int level = 1; level <= Tablebase.MAX_PLIES; level++) {
+            int[] frontier = decided.toArray();
+            IndexList next = new IndexList();
+            Pass pass = new Pass(frontier, 0, frontier.length, true, level, next);
+            pool.invoke(pass);
+            IndexList due = pending.get(level);
+            for (int i = 0; i < due.size(); i++) {
+                int index = due.get(i);
+                if (values[index] == Tablebase.DRAW && (level % 2 == 1 || remaining[index] == 0)) {
+                    values[index] = (byte) ((level % 2 == 1) ? Tablebase.win(level) : Tablebase.loss(level));
+                    next.add(index);
+                }
+            }
+            decided = next;
+            if (decided.isEmpty() && !hasPending(level + 1)) {
+                return;
+            }
+        }
+        throw new IllegalStateException(material.signature() + " has mates longer than "
+                + Tablebase.MAX_PLIES + " plies");
+    }
+
+    // Positions that win or lose only through moves leaving the material are decided on that move's ply
+    private void queueExit(int index) {
+        int exit = exits[index];
+        if (exit > 0) {
+            pending.get(exit).add(index);
+        } else if (exit < 0 && exit != EXIT_DRAW && remaining[index] == 0) {
+            pending.get(-exit).add(index);
+        }
+    }
+
+    private boolean hasPending(int from) {
+        for (int level = from; level <= Tablebase.MAX_PLIES; level++) {
+            if (!pending.get(level).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs either the first pass over a range of indexes or one ply's backward
+     * step over a range of the positions decided on the previous ply
+     */
+    private final class Pass extends RecursiveAction {
+        private final int[] frontier;
+        private final int start;
+        private final int end;
+        private final boolean backward;
+        private final int level;
+        private final IndexList decided;
+
+        Pass(int[] frontier, int start, int end, boolean backward, int level, IndexList decided) {
+            this.frontier = frontier;
+            this.start = start;
+            this.end = end;
+            this.backward = backward;
+            this.level = level;
+            this.decided = decided;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > CHUNK) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new Pass(frontier, start, middle, backward, level, decided),
+                        new Pass(frontier, middle, end, backward, level, decided));
+                return;
+            }
+            Worker worker = new Worker();
+            for (int i = start; i < end; i++) {
+                if (backward) {
+                    worker.retract(frontier[i], level);
+                } else {
+                    worker.initialize(i);
+                }
+            }
+            if (backward && !worker.decided.isEmpty()) {
+                synchronized (decided) {
+                    decided.addAll(worker.decided);
+                }
+            }
+        }
+    }
+
+    /**
+     * Scratch state for one task
+     */
+    private final class Worker {
+        private final ChessBoard board = new ChessBoard();
+        private final MoveGenerator generator = new MoveGenerator();
+        private final MoveList moves = new MoveList();
+        private final int[] squares = new int[2 + material.pieceCount()];
+        private final IndexList decided = new IndexList();
+
+        void initialize(int index) {
+            int side = material.decode(index, squares);
+            if (!material.isPlaceable(squares)) {
+                values[index] = Tablebase.ILLEGAL;
+                return;
+            }
+            ChessGame.TeamColor toMove = COLORS[side];
+            ChessGame.TeamColor waiting = COLORS[1 - side];
+            material.place(squares, board);
+            try {
+                long waitingKing = board.getPieces(waiting, ChessPiece.PieceType.KING);
+                if (Bitboards.isSquareAttacked(board, Long.numberOfTrailingZeros(waitingKing), toMove)) {
+                    values[index] = Tablebase.ILLEGAL;
+                    return;
+                }
+                generator.setPosition(board, toMove);
+                moves.clear();
+                generator.generateLegalMoves(moves);
+                if (moves.isEmpty()) {
+                    if (generator.isInCheck()) {
+                        values[index] = (byte) Tablebase.loss(0);
+                    } else {
+                        exits[index] = EXIT_DRAW;
+                    }
+                    return;
+                }
+                int count = 0;
+                int exit = 0;
+                for (int i = 0; i < moves.size(); i++) {
+                    int move = moves.get(i);
+                    if (Move.isCapture(move) || Move.isPromotion(move)) {
+                        exit = better(exit, exitValue(move, toMove, waiting));
+                    } else {
+                        count++;
+                    }
+                }
+                remaining[index] = (byte) count;
+                exits[index] = (byte) exit;
+            } finally {
+                material.clear(squares, board);
+            }
+        }
+
+        // The value of leaving the material by this move, in the form kept in exits
+        private int exitValue(int move, ChessGame.TeamColor toMove, ChessGame.TeamColor waiting) {
+            int from = Move.from(move);
+            int to = Move.to(move);
+            ChessPiece moved = board.getPiece(from);
+            ChessPiece captured = board.getPiece(to);
+            board.addPiece(from, null);
+            board.addPiece(to, Move.isPromotion(move) ? ChessPiece.of(toMove, Move.promotion(move)) : moved);
+            int value = dependencies.value(board, waiting);
+            board.addPiece(to, captured);
+            board.addPiece(from, moved);
+            if (value == Tablebases.NOT_COVERED) {
+                throw new IllegalStateException("Building " + material.signature() + " needs the table for "
+                        + Material.signatureOf(board, false) + " after " + Move.toString(move));
+            }
+            if (Tablebase.isLoss(value)) {
+                return Tablebase.plies(value) + 1;
+            }
+            if (Tablebase.isWin(value)) {
+                return -(Tablebase.plies(value) + 1);
+            }
+            return EXIT_DRAW;
+        }
+
+        /**
+         * Walks back from a position decided on the previous ply to every position
+         * that could have moved into it
+         */
+        void retract(int index, int level) {
+            int side = material.decode(index, squares);
+            int mover = 1 - side;
+            material.place(squares, board);
+            long occupied = board.getOccupied();
+            for (int slot = 0; slot < squares.length; slot++) {
+                ChessPiece piece = pieceAt(slot);
+                if (piece.getTeamColor().ordinal() != mover) {
+                    continue;
+                }
+                int to = squares[slot];
+                long origins;
+                if (piece.getPieceType() == ChessPiece.PieceType.PAWN) {
+                    origins = pawnOrigins(piece.getTeamColor(), to, occupied);
+                } else {
+                    origins = Bitboards.attacks(piece.getPieceType(), piece.getTeamColor(), to, occupied) & ~occupied;
+                }
+                while (origins != 0) {
+                    squares[slot] = Long.numberOfTrailingZeros(origins);
+                    update(material.index(mover, squares), level);
+                    origins &= origins - 1;
+                }
+                squares[slot] = to;
+            }
+            material.clear(squares, board);
+        }
+
+        private void update(int previous, int level) {
+            if (values[previous] != Tablebase.DRAW) {
+                return;
+            }
+            if (level % 2 == 1) {
+                if (BYTES.compareAndSet(values, previous, (byte) Tablebase.DRAW, (byte) Tablebase.win(level))) {
+                    decided.add(previous);
+                }
+                return;
+            }
+            int left = decrement(previous);
+            int exit = exits[previous];
+            if (left != 0 || exit > 0 || exit == EXIT_DRAW) {
+                return;
+            }
+            if (-exit > level) {
+                synchronized (pending) {
+                    pending.get(-exit).add(previous);
+                }
+            } else if (BYTES.compareAndSet(values, previous, (byte) Tablebase.DRAW, (byte) Tablebase.loss(level))) {
+                decided.add(previous);
+            }
+        }
+
+        // Not getAndAdd: on JDK 21.0.1, once C2 compiles it, getAndAdd on a byte array
+        // element returns the old value without narrowing it to a byte (0 reads back
+        // as -256). The interpreter and C1 get it right, and TablebaseTests fails with it.
+        private int decrement(int index) {
+            while (true) {
+                byte count = (byte) BYTES.getVolatile(remaining, index);
+                if (BYTES.compareAndSet(remaining, index, count, (byte) (count - 1))) {
+                    return count - 1;
+                }
+            }
+        }
+
+        private ChessPiece pieceAt(int slot) {
+            return switch (slot) {
+                case 0 -> ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
+                case 1 -> ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
+                default -> material.piece(slot - 2);
+            };
+        }
+    }
+
+    // The empty squares a pawn now on the square could have pushed from
+    private static long pawnOrigins(ChessGame.TeamColor color, int square, long occupied) {
+        boolean white = color == ChessGame.TeamColor.WHITE;
+        int row = Bitboards.row(square);
+        if (white ? row < 3 : row > 6) {
+            return 0;
+        }
+        int step = white ? -8 : 8;
+        long single = 1L << (square + step);
+        if ((occupied & single) != 0) {
+            return 0;
+        }
+        long twice = 1L << (square + 2 * step);
+        boolean doublePush = white ? row == 4 : row == 5;
+        return (doublePush && (occupied & twice) == 0) ? single | twice : single;
+    }
+
+    // Wins beat draws beat losses; faster wins and slower losses are better
+    private static int better(int current, int candidate) {
+        return (rank(candidate) > rank(current)) ? candidate : current;
+    }
+
+    private static int rank(int exit) {
+        if (exit == 0) {
+            return Integer.MIN_VALUE;
+        }
+        if (exit == EXIT_DRAW) {
+            return 0;
+        }
+        return (exit > 0) ? 1000 - exit : -1000 - exit;
+    }
+
+    /**
+     * Builds tables and writes them to a directory. Takes the directory and then
+     * the signatures to build, in an order where each table's captures and
+     * promotions lead to tables already built; builds KQvK, KRvK, KPvK and KBNvK
+     * if none are given.
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of((args.length > 0) ? args[0] : "tablebases");
+        List<String> signatures = (args.length > 1)
+                ? Arrays.asList(args).subList(1, args.length)
+                : List.of("KQvK", "KRvK", "KPvK", "KBNvK");
+        Files.createDirectories(directory);
+        Tablebases tablebases = Tablebases.open(directory);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        for (String signature : signatures) {
+            long start = System.nanoTime();
+            Tablebase table = generate(signature, tablebases, pool);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            Path file = table.write(directory);
+            tablebases.add(Tablebase.open(file));
+
+            int longest = 0;
+            long wins = 0;
+            long draws = 0;
+            long losses = 0;
+            for (int index = 0; index < table.material().size(); index++) {
+                int value = table.value(index);
+                if (Tablebase.isWin(value)) {
+                    wins++;
+                    longest = Math.max(longest, Tablebase.plies(value));
+                } else if (Tablebase.isLoss(value)) {
+                    losses++;
+                } else if (value == Tablebase.DRAW) {
+                    draws++;
+                }
+            }
+            System.out.printf("%-6s %6d ms  wins %9d  draws %9d  losses %9d  longest mate %d plies%n",
+                    signature, millis, wins, draws, losses, longest);
+        }
+    }
+
+    /**
+     * A growable list of table indexes, kept as ints so the backward passes do not
+     * box every position they decide
+     */
+    private static final class IndexList {
+        private int[] items = new int[16];
+        private int size;
+
+        void add(int index) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = index;
+        }
+
+        void addAll(IndexList other) {
+            if (size + other.size > items.length) {
+                items = Arrays.copyOf(items, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.items, 0, items, size, other.size);
+            size += other.size;
+        }
+
+        int get(int i) {
+            return items[i];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+}
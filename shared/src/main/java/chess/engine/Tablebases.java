@@ -0,0 +1,214 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.Move;
+import chess.MoveGenerator;
+import chess.MoveList;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers endgame positions from a set of {@link Tablebase} files.
+ * <p>
+ * A table covers its material with either team holding the extra pieces, so the
+ * "KPvK" table also answers king and pawn against king with a black pawn. Bare
+ * kings, and a king with one bishop or knight against a king, are draws without
+ * any table. Probes only read the mapped tables, so one set can be shared by any
+ * number of threads.
+ */
+public final class Tablebases {
+    /**
+     * What a position is worth to the team to move with perfect play
+     *
+     * @param plies plies until mate for a win or loss, 0 for a draw
+     */
+    public record Probe(Outcome outcome, int plies) {
+        public boolean isWin() {
+            return outcome == Outcome.WIN;
+        }
+
+        public boolean isDraw() {
+            return outcome == Outcome.DRAW;
+        }
+
+        public boolean isLoss() {
+            return outcome == Outcome.LOSS;
+        }
+    }
+
+    public enum Outcome {
+        WIN,
+        DRAW,
+        LOSS
+    }
+
+    /**
+     * Returned by {@link #value} for a position no table covers
+     */
+    static final int NOT_COVERED = Integer.MIN_VALUE;
+
+    private static final ChessPiece.PieceType[] MAJOR_TYPES = {
+            ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.ROOK, ChessPiece.PieceType.PAWN
+    };
+
+    private final Map<String, Tablebase> tables = new ConcurrentHashMap<>();
+
+    public Tablebases() {
+    }
+
+    /**
+     * Maps every table file in a directory
+     */
+    public static Tablebases open(Path directory) throws IOException {
+        Tablebases tablebases = new Tablebases();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + Tablebase.SUFFIX)) {
+            for (Path file : files) {
+                tablebases.add(Tablebase.open(file));
+            }
+        }
+        return tablebases;
+    }
+
+    public void add(Tablebase table) {
+        tables.put(table.getSignature(), table);
+    }
+
+    public boolean contains(String signature) {
+        return tables.containsKey(signature);
+    }
+
+    /**
+     * @return the value of the game's current position, or null if no table covers it
+     */
+    public Probe probe(ChessGame game) {
+        return probe(game.getBoard(), game.getTeamTurn());
+    }
+
+    /**
+     * @return the value of the position for the team to move, or null if no table
+     * covers it
+     */
+    public Probe probe(ChessBoard board, ChessGame.TeamColor toMove) {
+        int value = value(board, toMove);
+        if (value == NOT_COVERED || value == Tablebase.ILLEGAL) {
+            return null;
+        }
+        if (Tablebase.isWin(value)) {
+            return new Probe(Outcome.WIN, Tablebase.plies(value));
+        }
+        if (Tablebase.isLoss(value)) {
+            return new Probe(Outcome.LOSS, Tablebase.plies(value));
+        }
+        return new Probe(Outcome.DRAW, 0);
+    }
+
+    /**
+     * Picks the move that mates fastest when winning, keeps the draw when drawing,
+     * and holds out longest when losing
+     *
+     * @return the best move, or null if no table covers the position or there are
+     * no legal moves
+     */
+    public ChessMove getBestMove(ChessGame game) {
+        int move = bestMove(game.getBoard(), game.getTeamTurn());
+        return (move == Move.NONE) ? null : Move.toChessMove(move);
+    }
+
+    /**
+     * @return the best move encoded with {@link Move}, or {@link Move#NONE}
+     */
+    int bestMove(ChessBoard position, ChessGame.TeamColor toMove) {
+        if (value(position, toMove) == NOT_COVERED) {
+            return Move.NONE;
+        }
+        ChessBoard board = new ChessBoard(position);
+        ChessGame.TeamColor opponent = opponent(toMove);
+        MoveList moves = new MoveList();
+        new MoveGenerator(board, toMove).generateLegalMoves(moves);
+
+        int bestMove = Move.NONE;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int from = Move.from(move);
+            int to = Move.to(move);
+            ChessPiece moved = board.getPiece(from);
+            ChessPiece captured = board.getPiece(to);
+            board.addPiece(from, null);
+            board.addPiece(to, Move.isPromotion(move) ? ChessPiece.of(toMove, Move.promotion(move)) : moved);
+            int rank = rank(value(board, opponent));
+            board.addPiece(to, captured);
+            board.addPiece(from, moved);
+            if (rank > bestRank) {
+                bestRank = rank;
+                bestMove = move;
+            }
+        }
+        return bestMove;
+    }
+
+    // Orders moves by the opponent's value after them: quickest wins, then draws, then slowest losses
+    private static int rank(int opponentValue) {
+        if (opponentValue == NOT_COVERED) {
+            return -1000;
+        }
+        if (Tablebase.isLoss(opponentValue)) {
+            return 1000 - Tablebase.plies(opponentValue);
+        }
+        if (Tablebase.isWin(opponentValue)) {
+            return -500 + Tablebase.plies(opponentValue);
+        }
+        return 0;
+    }
+
+    /**
+     * @return the table byte for the position, or {@link #NOT_COVERED}
+     */
+    int value(ChessBoard board, ChessGame.TeamColor toMove) {
+        if (isInsufficient(board)) {
+            return Tablebase.DRAW;
+        }
+        Tablebase table = tables.get(Material.signatureOf(board, false));
+        boolean flip = false;
+        if (table == null) {
+            table = tables.get(Material.signatureOf(board, true));
+            flip = true;
+        }
+        if (table == null) {
+            return NOT_COVERED;
+        }
+        Material material = table.material();
+        int[] squares = new int[2 + material.pieceCount()];
+        if (!material.squaresOf(board, flip, squares)) {
+            return NOT_COVERED;
+        }
+        int side = flip ? opponent(toMove).ordinal() : toMove.ordinal();
+        return table.value(material.index(side, squares));
+    }
+
+    static boolean isInsufficient(ChessBoard board) {
+        for (ChessPiece.PieceType type : MAJOR_TYPES) {
+            if (board.getPieces(ChessGame.TeamColor.WHITE, type) != 0
+                    || board.getPieces(ChessGame.TeamColor.BLACK, type) != 0) {
+                return false;
+            }
+        }
+        long minors = 0;
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            minors |= board.getPieces(color, ChessPiece.PieceType.BISHOP) | board.getPieces(color, ChessPiece.PieceType.KNIGHT);
+        }
+        return Long.bitCount(minors) <= 1;
+    }
+
+    private static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+        return (color == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
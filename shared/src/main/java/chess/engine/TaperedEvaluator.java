@@ -0,0 +1,21 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.PieceSquareTables;
+
+/**
+ * Scores a position by blending the board's middlegame and endgame piece-square
+ * scores by how much material is left. The board keeps those scores up to date
+ * as pieces move, so this does no work per square.
+ */
+public class TaperedEvaluator implements Evaluator {
+    @Override
+    public int evaluate(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        int phase = Math.min(board.getPhase(), PieceSquareTables.MAX_PHASE);
+        int score = (board.getMiddlegameScore() * phase
+                + board.getEndgameScore() * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+        return (game.getTeamTurn() == ChessGame.TeamColor.WHITE) ? score : -score;
+    }
+}
@@ -0,0 +1,257 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.PackedPosition;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file of fixed-width training records, mapped straight from disk.
+ * <p>
+ * Each record is 40 big-endian bytes:
+ * <pre>
+ * bytes 0-31  the position, encoded with {@link PackedPosition}
+ * bytes 32-33 the search score for the team to move, in centipawns
+ * byte  34    the game's result for white: 1 win, 0 draw, -1 loss
+ * byte  35    the halfmove clock, capped at 255
+ * bytes 36-37 the ply the position came at, unsigned
+ * bytes 38-39 unused
+ * </pre>
+ * Files are read through a {@link Cursor} that reads fields out of the mapping
+ * as they are asked for, so no record is ever copied into an object. The file
+ * stays open for cursors to map until it is closed. Use
+ * {@link #create} to write one; {@link SelfPlay} fills them from engine games.
+ */
+public final class TrainingFile implements Closeable {
+    static final int RECORD_BYTES = 40;
+    // Files are mapped this many records at a time, which stays under the 2 GB limit of one mapping
+    private static final int CHUNK_RECORDS = 1 << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int chunkRecords;
+
+    private TrainingFile(FileChannel channel, long size, int chunkRecords) {
+        this.channel = channel;
+        this.size = size;
+        this.chunkRecords = chunkRecords;
+    }
+
+    public static TrainingFile open(Path path) throws IOException {
+        return open(path, CHUNK_RECORDS);
+    }
+
+    static TrainingFile open(Path path, int chunkRecords) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        long length = channel.size();
+        if (length % RECORD_BYTES != 0) {
+            channel.close();
+            throw new IOException("Not a training file: " + path);
+        }
+        return new TrainingFile(channel, length / RECORD_BYTES, chunkRecords);
+    }
+
+    /**
+     * @return the number of records in the file
+     */
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return a cursor before the first record. Each cursor maps the file on its own,
+     * so several threads can read one file with a cursor each.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Walks the records in order, mapping one chunk of the file at a time
+     */
+    public final class Cursor {
+        private MappedByteBuffer chunk;
+        private long chunkStart;
+        private long index = -1;
+        private int offset;
+
+        private Cursor() {
+        }
+
+        /**
+         * Moves to the next record
+         *
+         * @return false once there are no more records
+         */
+        public boolean next() throws IOException {
+            if (index + 1 >= size) {
+                return false;
+            }
+            index++;
+            if (chunk == null || index - chunkStart >= chunkRecords) {
+                chunkStart = index;
+                long records = Math.min(chunkRecords, size - index);
+                chunk = channel.map(FileChannel.MapMode.READ_ONLY, index * RECORD_BYTES, records * RECORD_BYTES);
+            }
+            offset = (int) (index - chunkStart) * RECORD_BYTES;
+            return true;
+        }
+
+        /**
+         * @return the index of the current record in the file
+         */
+        public long index() {
+            return index;
+        }
+
+        /**
+         * Sets the board's pieces to the current record's, so one board can be reused
+         * for every record
+         */
+        public void readBoard(ChessBoard board) {
+            PackedPosition.decode(chunk, offset, board);
+        }
+
+        /**
+         * Copies the current record's {@link PackedPosition} bytes into an array
+         */
+        public void copyPosition(byte[] out, int outOffset) {
+            chunk.get(offset, out, outOffset, PackedPosition.BYTES);
+        }
+
+        public ChessGame.TeamColor teamToMove() {
+            return PackedPosition.teamToMove(chunk, offset);
+        }
+
+        /**
+         * @return the search score in centipawns for the team to move
+         */
+        public int score() {
+            return chunk.getShort(offset + 32);
+        }
+
+        /**
+         * @return 1 if white won, 0 for a draw and -1 if black won
+         */
+        public int result() {
+            return chunk.get(offset + 34);
+        }
+
+        public int halfmoveClock() {
+            return Byte.toUnsignedInt(chunk.get(offset + 35));
+        }
+
+        public int ply() {
+            return Short.toUnsignedInt(chunk.getShort(offset + 36));
+        }
+
+        /**
+         * Builds the current record's position as a new game
+         */
+        public ChessGame toGame() {
+            ChessBoard board = new ChessBoard();
+            readBoard(board);
+            ChessGame game = new ChessGame(board);
+            game.setTeamTurn(teamToMove());
+            game.setHalfmoveClock(halfmoveClock());
+            return game;
+        }
+    }
+
+    /**
+     * Adds a record for the game's current position to a buffer, which must have
+     * {@link #RECORD_BYTES} left
+     *
+     * @param result the game's result for white: 1 win, 0 draw, -1 loss
+     * @param score  the search score for the team to move
+     */
+    static void putRecord(ByteBuffer buffer, ChessGame game, int result, int score, int ply) {
+        PackedPosition.encode(game.getBoard(), game.getTeamTurn(), buffer, buffer.position());
+        buffer.position(buffer.position() + PackedPosition.BYTES);
+        buffer.putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, score)));
+        buffer.put((byte) result);
+        buffer.put((byte) Math.min(game.getHalfmoveClock(), 255));
+        buffer.putShort((short) Math.min(ply, 0xFFFF));
+        buffer.putShort((short) 0);
+    }
+
+    /**
+     * Creates a training file, replacing any file already there
+     */
+    public static Writer create(Path path) throws IOException {
+        return create(path, CHUNK_RECORDS);
+    }
+
+    static Writer create(Path path, int chunkRecords) throws IOException {
+        return new Writer(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE), chunkRecords);
+    }
+
+    /**
+     * Appends records to a training file through a mapping of the file's next
+     * chunk, mapping a new chunk each time one fills. Closing cuts the file back to
+     * the records written. Appends are synchronized, so one writer can take whole
+     * games from many threads.
+     */
+    public static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final int chunkRecords;
+        private MappedByteBuffer chunk;
+        private long written;
+
+        private Writer(FileChannel channel, int chunkRecords) {
+            this.channel = channel;
+            this.chunkRecords = chunkRecords;
+        }
+
+        /**
+         * Appends every record between the buffer's position and its limit
+         *
+         * @throws IllegalArgumentException if that is not a whole number of records
+         */
+        public synchronized void append(ByteBuffer records) throws IOException {
+            if (records.remaining() % RECORD_BYTES != 0) {
+                throw new IllegalArgumentException("Not a whole number of records: " + records.remaining() + " bytes");
+            }
+            while (records.hasRemaining()) {
+                if (chunk == null || !chunk.hasRemaining()) {
+                    chunk = channel.map(FileChannel.MapMode.READ_WRITE, written, (long) chunkRecords * RECORD_BYTES);
+                }
+                int length = Math.min(records.remaining(), chunk.remaining());
+                chunk.put(chunk.position(), records, records.position(), length);
+                chunk.position(chunk.position() + length);
+                records.position(records.position() + length);
+                written += length;
+            }
+        }
+
+        /**
+         * @return the number of records appended so far
+         */
+        public synchronized long size() {
+            return written / RECORD_BYTES;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (chunk != null) {
+                chunk.force();
+                chunk = null;
+            }
+            channel.truncate(written);
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results, indexed by position key.
+ * <p>
+ * Each slot is a key and a data word packed as
+ * <pre>
+ * bits 0-15  best move
+ * bits 16-31 score, as a signed short
+ * bits 32-39 depth
+ * bits 40-41 bound
+ * </pre>
+ * A data word is never 0 for a stored entry, since every bound is non-zero, so
+ * probe can use 0 to mean nothing was found.
+ * <p>
+ * The table is shared by search threads without locking. Each slot stores the
+ * key XORed with the data word, so a slot that was half written by one thread
+ * while another read it fails the key check on probe and is treated as empty.
+ */
+public final class TranspositionTable {
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    private static final int ENTRY_BYTES = 16;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+
+    /**
+     * @param megabytes roughly how much memory to use, rounded down to a power of
+     *                  two number of entries
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Table size must be at least 1 MB: " + megabytes);
+        }
+        long entries = Math.min(1L << 30, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        int size = (int) Long.highestOneBit(entries);
+        keys = new long[size];
+        data = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * @return the data word stored for the key, or 0 if there is none
+     */
+    public long probe(long key) {
+        int index = (int) key & mask;
+        long word = data[index];
+        return ((keys[index] ^ word) == key) ? word : 0;
+    }
+
+    /**
+     * Stores a search result, replacing whatever is in the slot unless it is a
+     * deeper result for the same position
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = (int) key & mask;
+        long old = data[index];
+        if ((keys[index] ^ old) == key && old != 0) {
+            if (bound != EXACT && depth < depth(old)) {
+                return;
+            }
+            if (move == 0) {
+                move = move(old);
+            }
+        }
+        long word = pack(move, score, depth, bound);
+        keys[index] = key ^ word;
+        data[index] = word;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    static long pack(int move, int score, int depth, int bound) {
+        return (move & 0xFFFFL) | ((score & 0xFFFFL) << 16) | ((long) (depth & 0xFF) << 32) | ((long) bound << 40);
+    }
+
+    public static int move(long data) {
+        return (int) data & 0xFFFF;
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 40) & 3;
+    }
+}
@@ -0,0 +1,56 @@
+package chess.engine;
+
+import chess.PieceSquareTables;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels using the incubating Vector API, scoring one position per lane.
+ * Only loaded through {@link BatchKernels#best()}, which checks the module is
+ * present first.
+ * <p>
+ * The bitboards are counted in long lanes and the rest is done in int and float
+ * lanes of half the width, so every species has the same number of lanes.
+ */
+final class VectorBatchKernels implements BatchKernels {
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorShape HALF = VectorShape.forBitSize(LONGS.vectorBitSize() / 2);
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED.withShape(HALF);
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED.withShape(HALF);
+
+    private final ScalarBatchKernels tail = new ScalarBatchKernels();
+
+    @Override
+    public void score(PositionBatch batch, int from, int to, int[] scores) {
+        int i = from;
+        for (int bound = from + LONGS.loopBound(to - from); i < bound; i += LONGS.length()) {
+            IntVector middlegame = IntVector.fromArray(INTS, batch.middlegame, i);
+            IntVector endgame = IntVector.fromArray(INTS, batch.endgame, i);
+            IntVector phase = IntVector.zero(INTS);
+            // Kings are skipped since they have no material value or phase weight
+            for (int type = 1; type < 6; type++) {
+                LongVector white = LongVector.fromArray(LONGS, batch.pieces[type], i).lanewise(VectorOperators.BIT_COUNT);
+                LongVector black = LongVector.fromArray(LONGS, batch.pieces[6 + type], i).lanewise(VectorOperators.BIT_COUNT);
+                IntVector difference = (IntVector) white.sub(black).convertShape(VectorOperators.L2I, INTS, 0);
+                IntVector total = (IntVector) white.add(black).convertShape(VectorOperators.L2I, INTS, 0);
+                middlegame = middlegame.add(difference.mul(BatchEvaluator.MIDDLEGAME_VALUES[type]));
+                endgame = endgame.add(difference.mul(BatchEvaluator.ENDGAME_VALUES[type]));
+                phase = phase.add(total.mul(BatchEvaluator.PHASES[type]));
+            }
+            phase = phase.min(PieceSquareTables.MAX_PHASE);
+            IntVector blended = middlegame.mul(phase).add(endgame.mul(phase.neg().add(PieceSquareTables.MAX_PHASE)));
+            // Integer division has no SIMD instruction. The blend stays well under 2^24 so
+            // it is exact as a float, and truncating the float quotient matches int division.
+            IntVector tapered = (IntVector) ((FloatVector) blended.convertShape(VectorOperators.I2F, FLOATS, 0))
+                    .div(PieceSquareTables.MAX_PHASE)
+                    .convertShape(VectorOperators.F2I, INTS, 0);
+            IntVector mobility = IntVector.fromArray(INTS, batch.mobility, i).mul(BatchEvaluator.MOBILITY_WEIGHT);
+            tapered.add(mobility).mul(IntVector.fromArray(INTS, batch.sign, i)).intoArray(scores, i);
+        }
+        tail.score(batch, i, to, scores);
+    }
+}
@@ -0,0 +1,64 @@
+package chess.engine;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels using the incubating Vector API. Only loaded through
+ * {@link NnueKernels#best()}, which checks the module is present first.
+ */
+final class VectorNnueKernels implements NnueKernels {
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset, int length) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i)
+                    .add(ShortVector.fromArray(SHORTS, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < length; i++) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void subtract(short[] accumulator, short[] weights, int offset, int length) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i)
+                    .sub(ShortVector.fromArray(SHORTS, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < length; i++) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public int clippedDot(short[] accumulator, short[] weights, int offset, int length, int clip) {
+        ShortVector zero = ShortVector.zero(SHORTS);
+        ShortVector max = ShortVector.broadcast(SHORTS, (short) clip);
+        IntVector sums = null;
+        int i = 0;
+        for (int bound = SHORTS.loopBound(length); i < bound; i += SHORTS.length()) {
+            ShortVector activations = ShortVector.fromArray(SHORTS, accumulator, i).max(zero).min(max);
+            ShortVector weightVector = ShortVector.fromArray(SHORTS, weights, offset + i);
+            // Widen each half to ints before multiplying, since the products do not fit in a short
+            for (int part = 0; part < 2; part++) {
+                IntVector product = ((IntVector) activations.convert(VectorOperators.S2I, part))
+                        .mul((IntVector) weightVector.convert(VectorOperators.S2I, part));
+                sums = (sums == null) ? product : sums.add(product);
+            }
+        }
+        int sum = (sums == null) ? 0 : sums.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            int activation = Math.min(Math.max(accumulator[i], 0), clip);
+            sum += activation * weights[offset + i];
+        }
+        return sum;
+    }
+}
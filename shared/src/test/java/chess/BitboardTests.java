@@ -0,0 +1,120 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BitboardTests {
+
+    @Test
+    public void testResetBoardOccupancy() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+
+        assertEquals(0x000000000000FFFFL, board.getPieces(ChessGame.TeamColor.WHITE));
+        assertEquals(0xFFFF000000000000L, board.getPieces(ChessGame.TeamColor.BLACK));
+        assertEquals(0xFFFF00000000FFFFL, board.getOccupied());
+        assertEquals(1L << Bitboards.square(1, 5), board.getPieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+    }
+
+    @Test
+    public void testMovePieceUpdatesBitboards() {
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        ChessPosition start = new ChessPosition(1, 7);
+        ChessPosition end = new ChessPosition(3, 6);
+
+        board.movePiece(new ChessMove(start, end, null));
+
+        long knights = board.getPieces(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
+        assertEquals(0, knights & (1L << Bitboards.square(start)));
+        assertNotEquals(0, knights & (1L << Bitboards.square(end)));
+        assertEquals(0, board.getOccupied() & (1L << Bitboards.square(start)));
+    }
+
+    @Test
+    public void testBitboardsRebuiltAfterDeserialization() {
+        ChessGame game = new ChessGame();
+        Gson gson = new Gson();
+
+        ChessGame copy = gson.fromJson(gson.toJson(game), ChessGame.class);
+
+        assertEquals(game.getBoard().getOccupied(), copy.getBoard().getOccupied());
+        assertFalse(copy.isInCheck(ChessGame.TeamColor.WHITE));
+        assertEquals(20, copy.getAllMoves(ChessGame.TeamColor.WHITE).size());
+    }
+
+    @Test
+    public void testMagicAttacksMatchRayWalk() {
+        int[][] rookDirections = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+        int[][] bishopDirections = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+        Random random = new Random(42);
+
+        for (int i = 0; i < 2000; i++) {
+            long occupied = random.nextLong() & random.nextLong();
+            for (int square = 0; square < 64; square++) {
+                assertEquals(Bitboards.slidingAttacks(square, occupied, rookDirections),
+                        Bitboards.rookAttacks(square, occupied));
+                assertEquals(Bitboards.slidingAttacks(square, occupied, bishopDirections),
+                        Bitboards.bishopAttacks(square, occupied));
+            }
+        }
+    }
+
+    @Test
+    public void testSquareAttackedByPawnsAndBlockedSliders() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(new ChessPosition(4, 4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        board.addPiece(new ChessPosition(1, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        board.addPiece(new ChessPosition(1, 3), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        ChessGame game = new ChessGame(board);
+
+        assertTrue(game.isSquareAttacked(new ChessPosition(5, 5), ChessGame.TeamColor.WHITE));
+        assertFalse(game.isSquareAttacked(new ChessPosition(3, 5), ChessGame.TeamColor.WHITE));
+        assertTrue(game.isSquareAttacked(new ChessPosition(8, 1), ChessGame.TeamColor.BLACK));
+        assertTrue(game.isSquareAttacked(new ChessPosition(1, 3), ChessGame.TeamColor.BLACK));
+        assertFalse(game.isSquareAttacked(new ChessPosition(1, 4), ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    public void testZobristKeyFollowsMoves() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        long startKey = game.getPositionKey();
+
+        game.makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null));
+        assertNotEquals(startKey, game.getPositionKey());
+
+        game.makeMove(new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null));
+        game.makeMove(new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null));
+        assertEquals(startKey, game.getPositionKey());
+        assertEquals(new ChessGame().getPositionKey(), game.getPositionKey());
+
+        game.setTeamTurn(ChessGame.TeamColor.BLACK);
+        assertNotEquals(startKey, game.getPositionKey());
+    }
+
+    @Test
+    public void testEvaluationCountersFollowMoves() {
+        Random random = new Random(14);
+        ChessGame game = new ChessGame();
+        assertEquals(0, game.getBoard().getMiddlegameScore());
+        assertEquals(PieceSquareTables.MAX_PHASE, game.getBoard().getPhase());
+
+        for (int ply = 0; ply < 150; ply++) {
+            MoveList moves = game.generateLegalMoves(0);
+            if (moves.isEmpty()) {
+                break;
+            }
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+
+            ChessBoard rebuilt = new ChessBoard(game.getBoard());
+            assertEquals(rebuilt.getMiddlegameScore(), game.getBoard().getMiddlegameScore());
+            assertEquals(rebuilt.getEndgameScore(), game.getBoard().getEndgameScore());
+            assertEquals(rebuilt.getPhase(), game.getBoard().getPhase());
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static chess.MoveLines.play;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChessGameTests {
+
+    @Test
+    public void testThreefoldRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (int cycle = 0; cycle < 2; cycle++) {
+            assertEquals(cycle + 1, game.getRepetitionCount());
+            assertFalse(game.isThreefoldRepetition());
+            play(game, "g1f3 g8f6 f3g1 f6g8");
+        }
+        assertEquals(3, game.getRepetitionCount());
+        assertTrue(game.isThreefoldRepetition());
+        assertEquals(ChessGame.GameStatus.REPETITION, game.getGameStatus(ChessGame.TeamColor.WHITE));
+        assertEquals(8, game.getHalfmoveClock());
+
+        game.unmakeMove();
+        assertEquals(2, game.getRepetitionCount());
+        assertEquals(ChessGame.GameStatus.NORMAL, game.getGameStatus(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    public void testCopyKeepsClockAndRepetitions() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "g1f3 g8f6 f3g1 f6g8 g1f3 g8f6 f3g1");
+        ChessGame copy = new ChessGame(game);
+        assertEquals(game.getBoard(), copy.getBoard());
+        assertEquals(ChessGame.TeamColor.BLACK, copy.getTeamTurn());
+        assertEquals(7, copy.getHalfmoveClock());
+        assertEquals(0, copy.getUndoCount());
+        play(copy, "f6g8");
+        assertTrue(copy.isThreefoldRepetition());
+        assertEquals(2, game.getRepetitionCount());
+
+        // Games without a board compare and hash alike
+        game.setBoard(null);
+        copy.setBoard(null);
+        copy.setTeamTurn(game.getTeamTurn());
+        assertEquals(game, copy);
+        assertEquals(game.hashCode(), copy.hashCode());
+    }
+
+    @Test
+    public void testPawnMoveResetsRepetitions() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "g1f3 g8f6 f3g1 f6g8 e2e3 e7e6");
+        assertEquals(0, game.getHalfmoveClock());
+        play(game, "g1f3 g8f6 f3g1 f6g8");
+        assertEquals(2, game.getRepetitionCount());
+        assertEquals(4, game.getHalfmoveClock());
+
+        // Taking back the pawn moves brings back the history from before them
+        for (int i = 0; i < 6; i++) {
+            game.unmakeMove();
+        }
+        assertEquals(4, game.getHalfmoveClock());
+        assertEquals(2, game.getRepetitionCount());
+        play(game, "g1f3 g8f6 f3g1 f6g8");
+        assertTrue(game.isThreefoldRepetition());
+    }
+
+    @Test
+    public void testFiftyMoveRule() throws InvalidMoveException {
+        ChessGame game = Fen.parse("4k3/8/8/8/8/8/r7/4K2R w - - 98 70");
+        assertEquals(98, game.getHalfmoveClock());
+        play(game, "h1h2");
+        assertEquals(ChessGame.GameStatus.NORMAL, game.getGameStatus(ChessGame.TeamColor.BLACK));
+        play(game, "e8d8");
+        assertTrue(game.isFiftyMoveDraw());
+        assertEquals(ChessGame.GameStatus.FIFTY_MOVE, game.getGameStatus(ChessGame.TeamColor.WHITE));
+        assertEquals("3k4/8/8/8/8/8/r6R/4K3 w - - 100 71", Fen.format(game));
+
+        game.unmakeMove();
+        play(game, "a2h2");
+        assertEquals(0, game.getHalfmoveClock());
+        assertFalse(game.isFiftyMoveDraw());
+    }
+
+    @Test
+    public void testCheckmateBeatsFiftyMoveRule() throws InvalidMoveException {
+        ChessGame game = Fen.parse("6k1/5ppp/8/8/8/8/8/R5K1 w - - 99 80");
+        play(game, "a1a8");
+        assertEquals(ChessGame.GameStatus.CHECKMATE, game.getGameStatus(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    public void testLongShufflesKeepRecentHistory() throws InvalidMoveException {
+        ChessGame game = Fen.parse("4k3/8/8/8/8/8/8/4K2R w - - 0 1");
+        for (int i = 0; i < 40; i++) {
+            play(game, "h1h2 e8d8 h2h1 d8e8");
+        }
+        assertEquals(160, game.getHalfmoveClock());
+        assertEquals(ChessGame.GameStatus.FIFTY_MOVE, game.getGameStatus(ChessGame.TeamColor.WHITE));
+        // Only the last 128 plies are kept, which still covers every position since the fifty-move limit
+        assertEquals(33, game.getRepetitionCount());
+    }
+
+    @Test
+    public void testPackedPositionRoundTrip() {
+        for (Perft.Reference reference : Perft.REFERENCE_POSITIONS) {
+            ChessGame game = Fen.parse(reference.fen());
+            game.setHalfmoveClock(37);
+            byte[] packed = PackedPosition.encode(game);
+            assertEquals(PackedPosition.BYTES, packed.length);
+
+            ChessGame decoded = PackedPosition.decode(packed, 0);
+            assertEquals(game, decoded);
+            assertEquals(0, decoded.getHalfmoveClock());
+            assertEquals(game.getPositionKey(), decoded.getPositionKey());
+        }
+    }
+
+    @Test
+    public void testPackedPositionDecodesOntoReusedBoard() {
+        Random random = new Random(24);
+        ChessGame game = new ChessGame();
+        ChessBoard reused = new ChessBoard();
+        reused.resetBoard();
+        byte[] packed = new byte[PackedPosition.BYTES + 3];
+        for (int ply = 0; ply < 150; ply++) {
+            MoveList moves = game.generateLegalMoves(0);
+            if (moves.isEmpty()) {
+                break;
+            }
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+            PackedPosition.encode(game, packed, 3);
+            PackedPosition.decode(packed, 3, reused);
+            assertEquals(game.getBoard(), reused);
+            assertEquals(game.getTeamTurn(), PackedPosition.teamToMove(packed, 3));
+        }
+    }
+
+    @Test
+    public void testPackedPositionIsCanonical() throws InvalidMoveException {
+        ChessGame start = new ChessGame();
+        ChessGame transposed = new ChessGame();
+        play(start, "g1f3 g8f6 b1c3");
+        play(transposed, "b1c3 g8f6 g1f3");
+        assertArrayEquals(PackedPosition.encode(start), PackedPosition.encode(transposed));
+
+        play(transposed, "f6g8 f3g1 g8f6 g1f3");
+        assertEquals(start, transposed);
+        // The halfmove clock is not part of the encoding
+        assertNotEquals(start.getHalfmoveClock(), transposed.getHalfmoveClock());
+        assertArrayEquals(PackedPosition.encode(start), PackedPosition.encode(transposed));
+        transposed.setTeamTurn(ChessGame.TeamColor.WHITE);
+        assertFalse(Arrays.equals(PackedPosition.encode(start), PackedPosition.encode(transposed)));
+
+        ChessBoard crowded = new ChessBoard();
+        for (int square = 0; square < 33; square++) {
+            crowded.addPiece(square, ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        }
+        byte[] untouched = new byte[PackedPosition.BYTES];
+        assertThrows(IllegalArgumentException.class,
+                () -> PackedPosition.encode(crowded, ChessGame.TeamColor.WHITE, untouched, 0));
+        assertArrayEquals(new byte[PackedPosition.BYTES], untouched);
+
+        // A bad piece code late in the record leaves the board as it was
+        byte[] corrupt = PackedPosition.encode(start);
+        corrupt[23] |= 0x0F;
+        ChessBoard board = Fen.parse("4k3/8/8/8/8/8/8/4K3 w - - 0 1").getBoard();
+        assertThrows(IllegalArgumentException.class, () -> PackedPosition.decode(corrupt, 0, board));
+        assertEquals(Fen.parse("4k3/8/8/8/8/8/8/4K3 w - - 0 1").getBoard(), board);
+    }
+}
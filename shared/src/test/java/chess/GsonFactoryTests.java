@@ -0,0 +1,89 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import model.GameData;
+import org.junit.jupiter.api.Test;
+import websocket.commands.UserGameCommand;
+
+import static chess.MoveLines.play;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GsonFactoryTests {
+    private final Gson gson = GsonFactory.gson();
+
+    @Test
+    public void testGameRoundTripKeepsRepetitions() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "e2e4 e7e5 g1f3 g8f6 f3g1 f6g8 g1f3 g8f6 f3g1");
+        String json = gson.toJson(game);
+        assertTrue(json.startsWith("{\"version\":1,\"fen\":\"rnbqkb1r/pppp1ppp/5n2/4p3/4P3/8/PPPP1PPP/RNBQKBNR b - - 7 5\""));
+
+        ChessGame copy = gson.fromJson(json, ChessGame.class);
+        assertEquals(game.getBoard(), copy.getBoard());
+        assertEquals(ChessGame.TeamColor.BLACK, copy.getTeamTurn());
+        assertEquals(7, copy.getHalfmoveClock());
+        assertEquals(5, copy.getFullmoveNumber());
+        assertEquals(game.getRepetitionCount(), copy.getRepetitionCount());
+        play(copy, "f6g8");
+        assertTrue(copy.isThreefoldRepetition());
+        assertEquals(json, gson.toJson(gson.fromJson(json, ChessGame.class)));
+    }
+
+    @Test
+    public void testReadsLegacyFormat() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        play(game, "g1f3 g8f6 f3g1 f6g8 g1f3 g8f6 f3g1");
+        // Older rows also held the history ring, here wrapped past its end
+        JsonObject legacy = new Gson().toJsonTree(game).getAsJsonObject();
+        assertTrue(legacy.getAsJsonObject("board").has("squares"));
+        long[] keys = game.getRecentPositions();
+        JsonArray ring = new JsonArray();
+        for (int i = 0; i < 8; i++) {
+            ring.add((i + 8 - 3) % 8 < keys.length ? keys[(i + 8 - 3) % 8] : 0L);
+        }
+        legacy.add("positionHistory", ring);
+        legacy.addProperty("historySize", 3 + keys.length);
+
+        ChessGame copy = gson.fromJson(legacy.toString(), ChessGame.class);
+        assertEquals(game.getBoard(), copy.getBoard());
+        assertEquals(game.getTeamTurn(), copy.getTeamTurn());
+        assertEquals(7, copy.getHalfmoveClock());
+        play(copy, "f6g8");
+        assertTrue(copy.isThreefoldRepetition());
+
+        ChessMove move = ChessMove.of(ChessPosition.of(7, 1), ChessPosition.of(8, 1), ChessPiece.PieceType.QUEEN);
+        assertEquals(move, gson.fromJson(new Gson().toJson(move), ChessMove.class));
+        assertThrows(JsonParseException.class, () -> gson.fromJson("{\"version\":2}", ChessGame.class));
+        assertThrows(JsonParseException.class, () -> gson.fromJson("{\"color\":\"WHITE\"}", ChessGame.class));
+    }
+
+    @Test
+    public void testMovesAndBoardsAreStrings() {
+        ChessMove promotion = ChessMove.of(ChessPosition.of(7, 1), ChessPosition.of(8, 1), ChessPiece.PieceType.KNIGHT);
+        assertEquals("\"a7a8n\"", gson.toJson(promotion));
+        assertEquals(promotion, gson.fromJson("\"a7a8n\"", ChessMove.class));
+        assertThrows(JsonParseException.class, () -> gson.fromJson("\"a9a8\"", ChessMove.class));
+
+        UserGameCommand command = new UserGameCommand(UserGameCommand.CommandType.MAKE_MOVE, "token", 3,
+                ChessMove.of(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        UserGameCommand read = gson.fromJson(gson.toJson(command), UserGameCommand.class);
+        assertEquals(command.getMove(), read.getMove());
+
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        assertEquals("\"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR\"", gson.toJson(board));
+        assertEquals(board, gson.fromJson(gson.toJson(board), ChessBoard.class));
+    }
+
+    @Test
+    public void testGameRowsShrink() {
+        GameData data = new GameData(1, "white", "black", "game", new ChessGame());
+        int legacy = new Gson().toJson(data.game()).length();
+        int compact = gson.toJson(data.game()).length();
+        assertTrue(compact * 10 < legacy, compact + " bytes against " + legacy);
+        assertEquals(data, gson.fromJson(gson.toJson(data), GameData.class));
+    }
+}
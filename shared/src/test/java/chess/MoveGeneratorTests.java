@@ -0,0 +1,329 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveGeneratorTests {
+
+    @Test
+    public void testMatchesMakeAndCheckOnRandomGames() throws InvalidMoveException {
+        Random random = new Random(240);
+        for (int game = 0; game < 40; game++) {
+            ChessGame chessGame = new ChessGame();
+            for (int ply = 0; ply < 120; ply++) {
+                ChessGame.TeamColor turn = chessGame.getTeamTurn();
+                Collection<ChessMove> expected = slowLegalMoves(chessGame.getBoard(), turn);
+                List<ChessMove> actual = new ArrayList<>(chessGame.getAllMoves(turn));
+
+                assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+                assertEquals(expected.size(), actual.size());
+                if (actual.isEmpty()) {
+                    break;
+                }
+                chessGame.makeMove(actual.get(random.nextInt(actual.size())));
+            }
+        }
+    }
+
+    @Test
+    public void testValidMovesLeavesBoardUntouched() {
+        ChessGame game = new ChessGame();
+        ChessBoard before = new ChessBoard();
+        before.resetBoard();
+
+        game.validMoves(new ChessPosition(2, 5));
+        game.getAllMoves(ChessGame.TeamColor.BLACK);
+
+        assertEquals(before, game.getBoard());
+    }
+
+    @Test
+    public void testGeneratedMovesAreSharedInstances() {
+        ChessGame game = new ChessGame();
+        ChessMove expected = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+
+        ChessMove generated = game.validMoves(ChessPosition.of(2, 5)).stream()
+                .filter(expected::equals).findFirst().orElseThrow();
+
+        assertSame(ChessMove.of(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null), generated);
+        assertSame(ChessPosition.of(4, 5), generated.getEndPosition());
+        assertEquals(expected.hashCode(), generated.hashCode());
+        assertSame(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN),
+                game.getBoard().getPiece(ChessPosition.of(2, 5)));
+    }
+
+    @Test
+    public void testMoveListMatchesCollectionMoves() {
+        for (Perft.Reference reference : Perft.REFERENCE_POSITIONS) {
+            ChessGame game = Fen.parse(reference.fen());
+            MoveList moves = game.generateLegalMoves(0);
+
+            Collection<ChessMove> converted = new HashSet<>();
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
+                ChessMove chessMove = Move.toChessMove(move);
+                assertEquals(move, Move.fromChessMove(chessMove, game.getBoard()));
+                converted.add(chessMove);
+            }
+            assertEquals(new HashSet<>(game.getAllMoves(game.getTeamTurn())), converted);
+            assertEquals(reference.nodes()[0], moves.size());
+        }
+    }
+
+    @Test
+    public void testUnmakeRestoresEveryPosition() {
+        Random random = new Random(240);
+        for (Perft.Reference reference : Perft.REFERENCE_POSITIONS) {
+            ChessGame game = Fen.parse(reference.fen());
+            String startFen = Fen.format(game);
+            long startKey = game.getPositionKey();
+
+            List<String> fens = new ArrayList<>();
+            for (int ply = 0; ply < 60; ply++) {
+                MoveList moves = game.generateLegalMoves(0);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                fens.add(Fen.format(game));
+                game.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+            for (int ply = fens.size() - 1; ply >= 0; ply--) {
+                game.unmakeMove();
+                assertEquals(fens.get(ply), Fen.format(game));
+            }
+
+            assertEquals(0, game.getUndoCount());
+            assertEquals(startFen, Fen.format(game));
+            assertEquals(startKey, game.getPositionKey());
+        }
+    }
+
+    @Test
+    public void testGenerateChecksMatchesMakeAndTest() {
+        Random random = new Random(99);
+        MoveGenerator generator = new MoveGenerator();
+        for (Perft.Reference reference : Perft.REFERENCE_POSITIONS) {
+            ChessGame game = Fen.parse(reference.fen());
+            for (int ply = 0; ply < 60; ply++) {
+                ChessGame.TeamColor color = game.getTeamTurn();
+                MoveList moves = game.generateLegalMoves(0);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                MoveList checks = new MoveList();
+                generator.setPosition(game.getBoard(), color);
+                generator.generateChecks(checks);
+
+                int expected = 0;
+                for (int i = 0; i < moves.size(); i++) {
+                    game.makeMove(moves.get(i));
+                    if (game.isInCheck(game.getTeamTurn())) {
+                        expected++;
+                        assertTrue(checks.contains(moves.get(i)), Move.toString(moves.get(i)));
+                    }
+                    game.unmakeMove();
+                }
+                assertEquals(expected, checks.size(), Fen.format(game));
+                game.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+        }
+    }
+
+    @Test
+    public void testUnmakeRestoresPromotedPawn() throws InvalidMoveException {
+        ChessGame game = Fen.parse("1n2k3/P7/8/8/8/8/8/4K3 w - - 0 1");
+        ChessPosition start = ChessPosition.of(7, 1);
+
+        game.makeMove(ChessMove.of(start, ChessPosition.of(8, 2), ChessPiece.PieceType.QUEEN));
+        assertEquals(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN),
+                game.getBoard().getPiece(ChessPosition.of(8, 2)));
+
+        game.unmakeMove();
+        assertEquals("1n2k3/P7/8/8/8/8/8/4K3 w - - 0 1", Fen.format(game));
+        assertThrows(IllegalStateException.class, game::unmakeMove);
+    }
+
+    @Test
+    public void testGameStatusMatchesFullGeneration() {
+        Random random = new Random(7);
+        for (int game = 0; game < 40; game++) {
+            ChessGame chessGame = new ChessGame();
+            for (int ply = 0; ply < 200; ply++) {
+                for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+                    boolean check = chessGame.isInCheck(color);
+                    boolean noMoves = chessGame.getAllMoves(color).isEmpty();
+                    ChessGame.GameStatus expected = noMoves
+                            ? (check ? ChessGame.GameStatus.CHECKMATE : ChessGame.GameStatus.STALEMATE)
+                            : (check ? ChessGame.GameStatus.CHECK : ChessGame.GameStatus.NORMAL);
+                    if (!noMoves && chessGame.isFiftyMoveDraw()) {
+                        expected = ChessGame.GameStatus.FIFTY_MOVE;
+                    } else if (!noMoves && chessGame.isThreefoldRepetition()) {
+                        expected = ChessGame.GameStatus.REPETITION;
+                    }
+                    assertEquals(expected, chessGame.getGameStatus(color));
+                }
+                MoveList moves = chessGame.generateLegalMoves(0);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                chessGame.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+        }
+    }
+
+    @Test
+    public void testGameStatusFollowsBoardEdits() {
+        ChessGame game = Fen.parse("7k/8/6K1/8/8/8/8/8 b - - 0 1");
+        assertEquals(ChessGame.GameStatus.NORMAL, game.getGameStatus(ChessGame.TeamColor.BLACK));
+
+        game.getBoard().addPiece(ChessPosition.of(7, 7), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        game.getBoard().addPiece(ChessPosition.of(6, 7), null);
+        game.getBoard().addPiece(ChessPosition.of(6, 6), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        assertEquals(ChessGame.GameStatus.CHECKMATE, game.getGameStatus(ChessGame.TeamColor.BLACK));
+        assertTrue(game.isInCheckmate(ChessGame.TeamColor.BLACK));
+        assertFalse(game.isInStalemate(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    public void testLegalMoveCacheHitsAndMatchesGenerator() {
+        LegalMoveCache cache = new LegalMoveCache(4);
+        ChessBoard board = new ChessBoard();
+        board.resetBoard();
+        int e2 = Bitboards.square(2, 5);
+
+        assertEquals(new HashSet<>(new MoveGenerator(board, ChessGame.TeamColor.WHITE).legalMoves(e2)),
+                new HashSet<>(cache.legalMoves(board, ChessGame.TeamColor.WHITE, e2)));
+        assertEquals(20, cache.legalMoves(board, ChessGame.TeamColor.WHITE).size());
+        assertEquals(20, cache.legalMoves(board, ChessGame.TeamColor.BLACK).size());
+        assertTrue(cache.legalMoves(board, ChessGame.TeamColor.WHITE, Bitboards.square(8, 5)).isEmpty());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getHits());
+
+        Random random = new Random(11);
+        ChessGame game = new ChessGame();
+        for (int ply = 0; ply < 40; ply++) {
+            MoveList moves = game.generateLegalMoves(0);
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+            assertEquals(new HashSet<>(new MoveGenerator(game.getBoard(), game.getTeamTurn()).legalMoves()),
+                    new HashSet<>(cache.legalMoves(game.getBoard(), game.getTeamTurn())));
+        }
+        assertEquals(4, cache.getCapacity());
+    }
+
+    @Test
+    public void testLazyIteratorMatchesLegalMoves() {
+        for (Perft.Reference reference : Perft.REFERENCE_POSITIONS) {
+            ChessGame game = Fen.parse(reference.fen());
+            MoveGenerator generator = new MoveGenerator(game.getBoard(), game.getTeamTurn());
+            List<ChessMove> lazy = new ArrayList<>();
+            generator.legalMoveIterator().forEachRemaining(lazy::add);
+            assertEquals(generator.legalMoves().size(), lazy.size(), reference.fen());
+            assertEquals(new HashSet<>(generator.legalMoves()), new HashSet<>(lazy), reference.fen());
+        }
+
+        ChessGame promotion = Fen.parse("1n2k3/P7/8/8/8/8/8/4K3 w - - 0 1");
+        MoveGenerator generator = new MoveGenerator(promotion.getBoard(), ChessGame.TeamColor.WHITE);
+        assertEquals(8, generator.legalMoveStream().filter(move -> move.getPromotionPiece() != null).count());
+        assertTrue(generator.legalMoveStream().anyMatch(move -> move.equals(ChessMove.of(48, 57, ChessPiece.PieceType.KNIGHT))));
+
+        ChessGame mated = Fen.parse("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1");
+        assertFalse(new MoveGenerator(mated.getBoard(), ChessGame.TeamColor.BLACK).legalMoveIterator().hasNext());
+    }
+
+    @Test
+    public void testMoveTableFollowsMakeAndUnmake() {
+        for (Perft.Reference reference : Perft.REFERENCE_POSITIONS) {
+            ChessGame game = Fen.parse(reference.fen());
+            MoveTable table = new MoveTable(game.getBoard());
+            Random random = new Random(reference.fen().hashCode());
+            List<Integer> played = new ArrayList<>();
+            // The table is kept in step by hand here, the way ChessGame keeps its own
+            for (int ply = 0; ply < 200; ply++) {
+                for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+                    assertEquals(new HashSet<>(new MoveGenerator(game.getBoard(), color).legalMoves()),
+                            new HashSet<>(table.legalMoves(color)), reference.fen() + " ply " + ply);
+                }
+                MoveList moves = game.generateLegalMoves(0);
+                long occupied = game.getBoard().getOccupied();
+                long key = game.getBoard().getZobristKey();
+                int move;
+                if (moves.isEmpty() || (!played.isEmpty() && random.nextInt(4) == 0)) {
+                    if (played.isEmpty()) {
+                        break;
+                    }
+                    game.unmakeMove();
+                    move = played.remove(played.size() - 1);
+                } else {
+                    move = moves.get(random.nextInt(moves.size()));
+                    game.makeMove(move);
+                    played.add(move);
+                }
+                table.update((1L << Move.from(move)) | (1L << Move.to(move)), occupied, key);
+            }
+            assertEquals(1, table.getRebuilds(), reference.fen());
+        }
+    }
+
+    @Test
+    public void testGameMoveTableSurvivesBoardEdits() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        assertEquals(20, game.getAllMoves(ChessGame.TeamColor.WHITE).size());
+        game.makeMove(ChessMove.of(ChessPosition.of(2, 5), ChessPosition.of(4, 5), null));
+        game.makeMove(ChessMove.of(ChessPosition.of(7, 5), ChessPosition.of(5, 5), null));
+        assertEquals(4, game.validMoves(ChessPosition.of(1, 4)).size());
+
+        game.getBoard().addPiece(ChessPosition.of(1, 6), null);
+        assertEquals(new HashSet<>(new MoveGenerator(game.getBoard(), ChessGame.TeamColor.WHITE).legalMoves()),
+                new HashSet<>(game.getAllMoves(ChessGame.TeamColor.WHITE)));
+        assertTrue(game.validMoves(ChessPosition.of(1, 5)).contains(
+                ChessMove.of(ChessPosition.of(1, 5), ChessPosition.of(1, 6), null)));
+    }
+
+    @Test
+    public void testFreshGamesReadTheSharedCache() {
+        new ChessGame().getAllMoves(ChessGame.TeamColor.WHITE);
+        long hits = LegalMoveCache.shared().getHits();
+        new ChessGame().validMoves(ChessPosition.of(2, 5));
+        assertEquals(hits + 1, LegalMoveCache.shared().getHits());
+    }
+
+    @Test
+    public void testAllMovesAreTheCallersToChange() {
+        ChessGame game = new ChessGame();
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            Collection<ChessMove> moves = game.getAllMoves(color);
+            moves.clear();
+            assertEquals(20, game.getAllMoves(color).size());
+        }
+    }
+
+    private static Collection<ChessMove> slowLegalMoves(ChessBoard board, ChessGame.TeamColor color) {
+        ChessGame game = new ChessGame(board);
+        Collection<ChessMove> legal = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPosition position = new ChessPosition(row, col);
+                ChessPiece piece = board.getPiece(position);
+                if (piece == null || piece.getTeamColor() != color) {
+                    continue;
+                }
+                for (ChessMove move : piece.pieceMoves(board, position)) {
+                    ChessPiece captured = board.getPiece(move.getEndPosition());
+                    board.movePiece(move);
+                    if (!game.isInCheck(color)) {
+                        legal.add(move);
+                    }
+                    game.reverseMove(move, captured);
+                }
+            }
+        }
+        return legal;
+    }
+}
@@ -0,0 +1,26 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plays space-separated UCI move lines such as "e2e4 e7e5" for tests.
+ */
+public final class MoveLines {
+    private MoveLines() {
+    }
+
+    public static List<ChessMove> play(ChessGame game, String moves) throws InvalidMoveException {
+        List<ChessMove> line = new ArrayList<>();
+        for (String text : moves.split(" ")) {
+            ChessMove move = Move.toChessMove(Move.parse(text, game.getBoard()));
+            game.makeMove(move);
+            line.add(move);
+        }
+        return line;
+    }
+
+    public static List<ChessMove> line(String moves) throws InvalidMoveException {
+        return play(new ChessGame(), moves);
+    }
+}
@@ -0,0 +1,55 @@
+package chess;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PerftTests {
+    private static final long MAX_TEST_NODES = 500_000;
+
+    @Test
+    public void testReferencePositions() {
+        for (Perft.Reference reference : Perft.REFERENCE_POSITIONS) {
+            ChessGame game = Fen.parse(reference.fen());
+            for (int depth = 1; depth <= reference.nodes().length; depth++) {
+                long expected = reference.nodes()[depth - 1];
+                if (expected > MAX_TEST_NODES) {
+                    break;
+                }
+                assertEquals(expected, Perft.perft(game, depth), reference.name() + " perft(" + depth + ")");
+            }
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSequential() {
+        ChessGame game = Fen.parse(Perft.REFERENCE_POSITIONS.get(1).fen());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(Perft.perft(game, 4), Perft.parallelPerft(game, 4, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testDivideSumsToPerft() {
+        ChessGame game = new ChessGame();
+        Map<ChessMove, Long> divide = Perft.divide(game, 3);
+
+        assertEquals(20, divide.size());
+        assertEquals(8902, divide.values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(new ChessGame(), game);
+    }
+
+    @Test
+    public void testFenRoundTrip() {
+        for (Perft.Reference reference : Perft.REFERENCE_POSITIONS) {
+            ChessGame game = Fen.parse(reference.fen());
+            assertEquals(game, Fen.parse(Fen.format(game)));
+        }
+    }
+}
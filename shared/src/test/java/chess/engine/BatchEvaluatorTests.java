@@ -0,0 +1,69 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.Fen;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchEvaluatorTests {
+    @Test
+    public void testScoresMatchTaperedEvaluatorPlusMobility() {
+        List<ChessGame> games = BatchEvaluator.randomPositions(301, 150, new Random(5));
+        PositionBatch batch = new PositionBatch(games.size());
+        for (ChessGame game : games) {
+            batch.add(game);
+        }
+        int[] scores = new BatchEvaluator(new ScalarBatchKernels()).evaluate(batch);
+
+        TaperedEvaluator tapered = new TaperedEvaluator();
+        for (int i = 0; i < games.size(); i++) {
+            ChessGame game = games.get(i);
+            int sign = (game.getTeamTurn() == ChessGame.TeamColor.WHITE) ? 1 : -1;
+            assertEquals(tapered.evaluate(game) + sign * BatchEvaluator.MOBILITY_WEIGHT * batch.getMobility(i), scores[i]);
+        }
+    }
+
+    @Test
+    public void testVectorAndScalarKernelsAgree() {
+        List<ChessGame> games = BatchEvaluator.randomPositions(517, 150, new Random(8));
+        // Promoted queens push the phase past its cap
+        games.add(Fen.parse("QQQQ3k/8/8/8/8/8/8/QQQQ3K b - - 0 1"));
+        PositionBatch batch = new PositionBatch(games.size());
+        for (ChessGame game : games) {
+            batch.add(game);
+        }
+        int[] scalar = new int[batch.size()];
+        int[] best = new int[batch.size()];
+        new ScalarBatchKernels().score(batch, 0, batch.size(), scalar);
+        BatchKernels.best().score(batch, 0, batch.size(), best);
+        assertArrayEquals(scalar, best);
+
+        // Ranges that do not start or end on a lane boundary
+        int[] partial = new int[batch.size()];
+        BatchKernels.best().score(batch, 3, 200, partial);
+        for (int i = 3; i < 200; i++) {
+            assertEquals(scalar[i], partial[i]);
+        }
+        assertEquals(0, partial[2]);
+        assertEquals(0, partial[200]);
+    }
+
+    @Test
+    public void testMobilityAndBatchLimits() {
+        PositionBatch batch = new PositionBatch(2);
+        batch.add(new ChessGame());
+        batch.add(Fen.parse("4k3/8/8/8/8/8/8/R3K3 w - - 0 1"));
+        assertEquals(0, batch.getMobility(0));
+        assertEquals(10, batch.getMobility(1));
+        assertThrows(IllegalStateException.class, () -> batch.add(new ChessGame()));
+        assertThrows(IllegalArgumentException.class, () -> new BatchEvaluator().evaluate(batch, new int[1]));
+
+        batch.clear();
+        assertEquals(0, batch.size());
+        assertEquals(2, batch.capacity());
+    }
+}
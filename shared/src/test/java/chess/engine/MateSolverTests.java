@@ -0,0 +1,85 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Fen;
+import chess.InvalidMoveException;
+import chess.Move;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static chess.MoveLines.line;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MateSolverTests {
+    private static final String SACRIFICE = "r1b3kr/ppp1Bp1p/1b6/n2P4/2p3q1/2Q2N2/P4PPP/RN2R1K1 w - - 0 1";
+
+    @Test
+    public void testMateInOne() {
+        MateSolver solver = new MateSolver(10_000);
+        MateSolver.Result result = solver.solve(Fen.parse("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"), 4);
+        assertEquals(MateSolver.Status.MATE, result.status());
+        assertEquals(1, result.mateIn());
+        assertEquals("a1a8", Move.toString(result.line()[0]));
+
+        result = solver.solve(Fen.parse("6rk/6pp/8/6N1/8/8/8/6K1 w - - 0 1"), 4);
+        assertEquals("g5f7", Move.toString(result.line()[0]));
+    }
+
+    @Test
+    public void testLineChecksAndMates() {
+        ChessGame game = Fen.parse(SACRIFICE);
+        MateSolver.Result result = new MateSolver(100_000).solve(game, 5);
+        assertTrue(result.isMate());
+        assertEquals(3, result.mateIn());
+        assertEquals(5, result.line().length);
+        assertEquals("c3h8", Move.toString(result.line()[0]));
+
+        for (int i = 0; i < result.line().length; i++) {
+            game.makeMove(result.line()[i]);
+            if (i % 2 == 0) {
+                assertTrue(game.isInCheck(game.getTeamTurn()));
+            }
+        }
+        assertTrue(game.isInCheckmate(ChessGame.TeamColor.BLACK));
+
+        SearchResult search = new Search().search(Fen.parse(SACRIFICE), SearchLimits.depth(6));
+        assertEquals(3, search.mateIn());
+    }
+
+    @Test
+    public void testShorterLimitsFindNoMate() {
+        MateSolver solver = new MateSolver(100_000);
+        assertEquals(MateSolver.Status.NO_MATE, solver.solve(Fen.parse(SACRIFICE), 2).status());
+        assertEquals(MateSolver.Status.NO_MATE, solver.solve(new ChessGame(), 3).status());
+    }
+
+    @Test
+    public void testDefenderToMove() {
+        ChessGame game = Fen.parse(SACRIFICE);
+        game.makeMove(Move.parse("c3h8", game.getBoard()));
+        MateSolver.Result result = new MateSolver(100_000).solve(game, ChessGame.TeamColor.WHITE, 3);
+        assertTrue(result.isMate());
+        assertEquals(2, result.mateIn());
+        assertEquals("g8h8", Move.toString(result.line()[0]));
+    }
+
+    @Test
+    public void testBudgetRunsOut() {
+        MateSolver.Result result = new MateSolver(500).solve(Fen.parse("7k/8/8/8/8/8/R7/1R4K1 w - - 0 1"), 8);
+        assertEquals(MateSolver.Status.UNKNOWN, result.status());
+        assertNull(result.getBestMove());
+        assertTrue(result.nodes() >= 500);
+    }
+
+    @Test
+    public void testFindsMissedMate() throws InvalidMoveException {
+        List<ChessMove> moves = line("f2f3 e7e5 g2g4 d7d6 e2e3 d8h4");
+        List<MateSolver.MissedMate> missed = new MateSolver(10_000).findMissedMates(moves, 2);
+        assertEquals(1, missed.size());
+        assertEquals(3, missed.get(0).ply());
+        assertEquals(moves.get(3), missed.get(0).played());
+        assertEquals("d8h4", Move.toString(missed.get(0).mate().line()[0]));
+    }
+}
@@ -0,0 +1,103 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.Fen;
+import chess.MoveList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NnueTests {
+    private static final NnueNetwork NETWORK = NnueNetwork.random(32, 15);
+
+    @Test
+    public void testIncrementalMatchesFreshEvaluation() {
+        Random random = new Random(15);
+        NnueEvaluator incremental = new NnueEvaluator(NETWORK);
+        ChessGame game = new ChessGame();
+
+        for (int ply = 0; ply < 120; ply++) {
+            assertEquals(freshEvaluation(game), incremental.evaluate(game));
+            MoveList moves = game.generateLegalMoves(0);
+            if (moves.isEmpty()) {
+                break;
+            }
+            game.makeMove(moves.get(random.nextInt(moves.size())));
+            if (ply % 7 == 6) {
+                game.unmakeMove();
+                assertEquals(freshEvaluation(game), incremental.evaluate(game));
+                game.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+        }
+    }
+
+    @Test
+    public void testBoardEditsWithoutNoticeAreCaught() {
+        NnueEvaluator evaluator = new NnueEvaluator(NETWORK);
+        ChessGame game = new ChessGame();
+        evaluator.evaluate(game);
+
+        game.getBoard().setListener(null);
+        game.getBoard().resetBoard();
+        game.getBoard().addPiece(12, null);
+
+        assertEquals(freshEvaluation(game), evaluator.evaluate(game));
+    }
+
+    @Test
+    public void testMirroredPositionsScoreTheSame() {
+        NnueEvaluator evaluator = new NnueEvaluator(NETWORK);
+        ChessGame white = Fen.parse("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w - - 0 1");
+        ChessGame black = Fen.parse("rnbqkb1r/pppp1ppp/5n2/4p3/4P3/2N5/PPPP1PPP/R1BQKBNR b - - 0 1");
+
+        assertEquals(evaluator.evaluate(white), evaluator.evaluate(black));
+    }
+
+    @Test
+    public void testVectorAndScalarKernelsAgree() {
+        NnueKernels best = NnueKernels.best();
+        NnueKernels scalar = new ScalarNnueKernels();
+        Random random = new Random(3);
+        short[] weights = new short[301];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = (short) (random.nextInt(601) - 300);
+        }
+        short[] vectorSum = new short[101];
+        short[] scalarSum = new short[101];
+
+        for (int offset = 0; offset < 200; offset += 37) {
+            best.add(vectorSum, weights, offset, 101);
+            scalar.add(scalarSum, weights, offset, 101);
+            best.subtract(vectorSum, weights, offset / 2, 101);
+            scalar.subtract(scalarSum, weights, offset / 2, 101);
+            assertArrayEquals(scalarSum, vectorSum);
+            assertEquals(scalar.clippedDot(scalarSum, weights, offset, 101, 255),
+                    best.clippedDot(vectorSum, weights, offset, 101, 255));
+        }
+    }
+
+    @Test
+    public void testSaveAndLoad(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("random.nnue");
+        NETWORK.save(file);
+
+        NnueNetwork loaded = NnueNetwork.load(file);
+        ChessGame game = Fen.parse("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+
+        assertEquals(32, loaded.getHiddenSize());
+        assertEquals(new NnueEvaluator(NETWORK).evaluate(game), new NnueEvaluator(loaded).evaluate(game));
+        assertThrows(IOException.class, () -> NnueNetwork.load(directory.resolve("missing.nnue")));
+    }
+
+    private static int freshEvaluation(ChessGame game) {
+        ChessGame copy = new ChessGame(new ChessBoard(game.getBoard()));
+        copy.setTeamTurn(game.getTeamTurn());
+        return new NnueEvaluator(NETWORK, new ScalarNnueKernels()).evaluate(copy);
+    }
+}
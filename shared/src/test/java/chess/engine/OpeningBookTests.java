@@ -0,0 +1,78 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static chess.MoveLines.line;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpeningBookTests {
+
+    @Test
+    public void testBuildAndLookUp(@TempDir Path directory) throws IOException, InvalidMoveException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(4);
+        builder.addGame(line("e2e4 e7e5 g1f3 b8c6 f1b5"), ChessGame.TeamColor.WHITE);
+        builder.addGame(line("e2e4 c7c5 g1f3"), ChessGame.TeamColor.BLACK);
+        builder.addGame(line("d2d4 d7d5"), null);
+        Path file = directory.resolve("openings.bin");
+        builder.write(file);
+
+        OpeningBook book = OpeningBook.open(file);
+        assertEquals(8, book.size());
+        assertEquals(8L * 16, Files.size(file));
+
+        List<OpeningBook.Entry> start = book.lookup(new ChessGame());
+        assertEquals(2, start.size());
+        assertEquals(move(2, 5, 4, 5), start.get(0).getMove());
+        assertEquals(2, start.get(0).weight());
+        assertEquals(2, start.get(0).learn());
+        assertEquals(move(2, 4, 4, 4), start.get(1).getMove());
+        assertEquals(1, start.get(1).weight());
+
+        ChessGame game = new ChessGame();
+        game.makeMove(move(2, 5, 4, 5));
+        assertEquals(move(7, 3, 5, 3), book.getBestMove(game));
+        game.makeMove(move(7, 5, 5, 5));
+        game.makeMove(move(1, 7, 3, 6));
+        game.makeMove(move(8, 2, 6, 3));
+        assertNull(book.getBestMove(game));
+        assertNull(book.getWeightedMove(game, new Random(1)));
+    }
+
+    @Test
+    public void testSearchAnswersFromBook(@TempDir Path directory) throws IOException, InvalidMoveException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(2);
+        builder.addGame(line("c2c4 e7e5"), ChessGame.TeamColor.WHITE);
+        Path file = directory.resolve("openings.bin");
+        builder.write(file);
+        Search search = new Search();
+        search.setOpeningBook(OpeningBook.open(file));
+
+        SearchResult result = search.search(new ChessGame(), SearchLimits.depth(6));
+
+        assertEquals(0, result.depth());
+        assertEquals(move(2, 3, 4, 3), result.getBestMove());
+    }
+
+    @Test
+    public void testRejectsTruncatedFile(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("broken.bin");
+        Files.write(file, new byte[20]);
+
+        assertThrows(IOException.class, () -> OpeningBook.open(file));
+    }
+
+    private static ChessMove move(int fromRow, int fromCol, int toRow, int toCol) {
+        return new ChessMove(new ChessPosition(fromRow, fromCol), new ChessPosition(toRow, toCol), null);
+    }
+}
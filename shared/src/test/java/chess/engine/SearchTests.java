@@ -0,0 +1,135 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.Fen;
+import chess.InvalidMoveException;
+import chess.Move;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchTests {
+
+    @Test
+    public void testFindsMateInOne() {
+        ChessGame game = Fen.parse("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+
+        SearchResult result = new Search().search(game, SearchLimits.depth(4));
+
+        assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null), result.getBestMove());
+        assertTrue(result.isMate());
+        assertEquals(1, result.mateIn());
+    }
+
+    @Test
+    public void testFindsMateInTwo() {
+        ChessGame game = Fen.parse("k7/8/2K5/8/8/8/8/6R1 w - - 0 1");
+
+        SearchResult result = new Search().search(game, SearchLimits.depth(5));
+
+        assertEquals(2, result.mateIn());
+    }
+
+    @Test
+    public void testScoresFiftyMoveDraw() {
+        SearchResult fresh = new Search().search(Fen.parse("k7/8/8/8/8/8/1Q6/K7 w - - 0 1"), SearchLimits.depth(3));
+        assertTrue(fresh.score() > 500);
+
+        // Every move reaches the hundredth ply without mate
+        SearchResult drawn = new Search().search(Fen.parse("k7/8/8/8/8/8/1Q6/K7 w - - 99 1"), SearchLimits.depth(3));
+        assertEquals(0, drawn.score());
+    }
+
+    @Test
+    public void testPrincipalVariationIsPlayable() throws InvalidMoveException {
+        ChessGame game = Fen.parse("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w - - 0 1");
+        String before = Fen.format(game);
+        List<SearchResult> iterations = new ArrayList<>();
+        Search search = new Search();
+        search.setListener(iterations::add);
+
+        SearchResult result = search.search(game, SearchLimits.depth(4));
+
+        assertEquals(before, Fen.format(game));
+        assertEquals(4, iterations.size());
+        assertEquals(4, result.depth());
+        assertTrue(result.principalVariation().length > 0);
+        for (int move : result.principalVariation()) {
+            game.makeMove(Move.toChessMove(move));
+        }
+    }
+
+    @Test
+    public void testWinsHangingQueen() {
+        ChessGame game = Fen.parse("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        Search search = new Search(new TranspositionTable(1), new MaterialEvaluator());
+
+        SearchResult result = search.search(game, SearchLimits.depth(3));
+
+        assertEquals(new ChessMove(new ChessPosition(2, 4), new ChessPosition(5, 4), null), result.getBestMove());
+        assertEquals(500, result.score());
+    }
+
+    @Test
+    public void testStopsAtNodeLimit() {
+        SearchResult result = new Search().search(new ChessGame(), SearchLimits.nodes(5000));
+
+        assertTrue(result.nodes() <= 5000);
+        assertNotNull(result.getBestMove());
+        assertTrue(new ChessGame().isValidMove(result.getBestMove()));
+    }
+
+    @Test
+    public void testParallelSearchAgreesOnMate() {
+        ChessGame game = Fen.parse("k7/8/2K5/8/8/8/8/6R1 w - - 0 1");
+        ParallelSearch search = new ParallelSearch(4);
+
+        SearchResult result = search.search(game, SearchLimits.depth(5));
+
+        assertEquals(2, result.mateIn());
+        assertTrue(game.isValidMove(result.getBestMove()));
+        assertTrue(result.nodes() > 0);
+    }
+
+    @Test
+    public void testParallelSearchSharesNodeLimit() {
+        SearchResult result = new ParallelSearch(3).search(new ChessGame(), SearchLimits.nodes(20000));
+
+        assertTrue(new ChessGame().isValidMove(result.getBestMove()));
+        assertTrue(result.nodes() < 20000 + 3 * 1024);
+    }
+
+    @Test
+    public void testTaperedEvaluationIsSymmetric() {
+        TaperedEvaluator evaluator = new TaperedEvaluator();
+        assertEquals(0, evaluator.evaluate(new ChessGame()));
+
+        ChessGame white = Fen.parse("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w - - 0 1");
+        ChessGame black = Fen.parse("rnbqkb1r/pppp1ppp/5n2/4p3/4P3/2N5/PPPP1PPP/R1BQKBNR b - - 0 1");
+        assertEquals(evaluator.evaluate(white), evaluator.evaluate(black));
+
+        ChessGame endgame = Fen.parse("8/8/8/4k3/8/8/4P3/4K3 w - - 0 1");
+        assertEquals(0, endgame.getBoard().getPhase());
+        assertEquals(endgame.getBoard().getEndgameScore(), evaluator.evaluate(endgame));
+    }
+
+    @Test
+    public void testTranspositionTablePacking() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Move.encode(12, 28, 0);
+
+        table.store(0x1234_5678_9ABCL, move, -29990, 7, TranspositionTable.LOWER);
+        long entry = table.probe(0x1234_5678_9ABCL);
+
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(-29990, TranspositionTable.score(entry));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        assertEquals(0, table.probe(0x1234_5678_9ABDL));
+    }
+}
@@ -0,0 +1,110 @@
+package chess.engine;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.Fen;
+import chess.PackedPosition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SelfPlayTests {
+    @Test
+    public void testRecordsRoundTripAcrossChunks(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("positions.bin");
+        ChessGame[] games = {
+                new ChessGame(),
+                Fen.parse("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R b - - 2 3"),
+                Fen.parse("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1")
+        };
+        try (TrainingFile.Writer writer = TrainingFile.create(path, 4)) {
+            ByteBuffer records = ByteBuffer.allocate(10 * TrainingFile.RECORD_BYTES);
+            for (int i = 0; i < 10; i++) {
+                ChessGame game = games[i % games.length];
+                TrainingFile.putRecord(records, game, i % 3 - 1, -500 + 100 * i, i);
+            }
+            records.flip();
+            writer.append(records);
+            assertEquals(10, writer.size());
+            assertThrows(IllegalArgumentException.class, () -> writer.append(ByteBuffer.allocate(5)));
+        }
+        assertEquals(10L * TrainingFile.RECORD_BYTES, Files.size(path));
+
+        try (TrainingFile file = TrainingFile.open(path, 3)) {
+            TrainingFile.Cursor cursor = file.cursor();
+            ChessBoard board = new ChessBoard();
+            byte[] position = new byte[PackedPosition.BYTES];
+            for (int i = 0; i < 10; i++) {
+                assertTrue(cursor.next());
+                ChessGame expected = games[i % games.length];
+                assertEquals(i, cursor.index());
+                assertEquals(expected.getBoard(), cursor.toGame().getBoard());
+                assertEquals(expected.getTeamTurn(), cursor.teamToMove());
+                cursor.readBoard(board);
+                assertEquals(expected.getBoard(), board);
+                cursor.copyPosition(position, 0);
+                assertArrayEquals(PackedPosition.encode(expected), position);
+                assertEquals(i % 3 - 1, cursor.result());
+                assertEquals(-500 + 100 * i, cursor.score());
+                assertEquals(i, cursor.ply());
+                assertEquals(expected.getHalfmoveClock(), cursor.halfmoveClock());
+                assertEquals(expected.getHalfmoveClock(), cursor.toGame().getHalfmoveClock());
+            }
+            assertFalse(cursor.next());
+        }
+    }
+
+    @Test
+    public void testSelfPlayWritesScoredPositions(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("self-play.bin");
+        SelfPlay selfPlay = new SelfPlay(2, SearchLimits.nodes(200), 8, 42);
+        SelfPlay.Stats stats;
+        try (TrainingFile.Writer writer = TrainingFile.create(path)) {
+            stats = selfPlay.run(4, writer);
+        }
+        assertEquals(4, stats.games());
+        assertTrue(stats.positions() > 0);
+        assertTrue(stats.perThread() > 0);
+
+        try (TrainingFile file = TrainingFile.open(path)) {
+            assertEquals(stats.positions(), file.size());
+            TrainingFile.Cursor cursor = file.cursor();
+            while (cursor.next()) {
+                ChessGame game = cursor.toGame();
+                assertTrue(cursor.ply() >= 8);
+                assertEquals(cursor.ply() % 2 == 0, cursor.teamToMove() == ChessGame.TeamColor.WHITE);
+                assertEquals(ChessGame.GameStatus.NORMAL, game.getGameStatus(game.getTeamTurn()));
+                assertTrue(Math.abs(cursor.score()) < Search.MATE - Search.MAX_PLY);
+                assertTrue(Math.abs(cursor.result()) <= 1);
+            }
+        }
+    }
+
+    @Test
+    public void testOneThreadRunsRepeat(@TempDir Path directory) throws IOException {
+        Path first = directory.resolve("first.bin");
+        Path second = directory.resolve("second.bin");
+        for (Path path : new Path[]{first, second}) {
+            try (TrainingFile.Writer writer = TrainingFile.create(path)) {
+                new SelfPlay(1, SearchLimits.depth(2), 6, 7).run(2, writer);
+            }
+        }
+        assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+        Files.write(first, new byte[TrainingFile.RECORD_BYTES + 1]);
+        assertThrows(IOException.class, () -> TrainingFile.open(first));
+    }
+
+    @Test
+    public void testWorkerFailuresReachTheCaller(@TempDir Path directory) throws IOException {
+        try (TrainingFile.Writer writer = TrainingFile.create(directory.resolve("failed.bin"))) {
+            // Searching without limits throws in every worker
+            assertThrows(NullPointerException.class, () -> new SelfPlay(2, null, 0, 1).run(4, writer));
+        }
+    }
+}
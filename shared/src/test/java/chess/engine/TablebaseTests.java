@@ -0,0 +1,119 @@
+package chess.engine;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.Fen;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TablebaseTests {
+    private static Tablebases tablebases;
+
+    @BeforeAll
+    public static void generate() {
+        tablebases = new Tablebases();
+        for (String signature : new String[]{"KQvK", "KRvK", "KPvK"}) {
+            tablebases.add(TablebaseGenerator.generate(signature, tablebases, ForkJoinPool.commonPool()));
+        }
+    }
+
+    @Test
+    public void testLongestMates() {
+        assertEquals(19, longestWin("KQvK"));
+        assertEquals(31, longestWin("KRvK"));
+    }
+
+    @Test
+    public void testProbeResults() {
+        assertEquals(new Tablebases.Probe(Tablebases.Outcome.WIN, 1), probe("k7/8/1K6/8/8/8/7Q/8 w"));
+        assertEquals(new Tablebases.Probe(Tablebases.Outcome.LOSS, 0), probe("k6Q/8/1K6/8/8/8/8/8 b"));
+        assertEquals(new Tablebases.Probe(Tablebases.Outcome.DRAW, 0), probe("k7/1Q6/8/8/8/8/8/7K b"));
+        assertNull(probe("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w"));
+        assertEquals(new Tablebases.Probe(Tablebases.Outcome.DRAW, 0), probe("8/8/3k4/8/8/3B4/8/3K4 w"));
+    }
+
+    @Test
+    public void testPawnEndingsBothColors() {
+        assertTrue(probe("k7/8/K7/P7/8/8/8/8 w").isDraw());
+        assertTrue(probe("8/8/8/8/p7/k7/8/K7 w").isDraw());
+        assertTrue(probe("8/4P3/4K3/8/8/8/8/k7 b").isLoss());
+        assertTrue(probe("8/8/8/8/8/4k3/4p3/7K b").isWin());
+        assertEquals(probe("8/4P3/8/4K3/8/8/8/k7 w"), probe("K7/8/8/8/4k3/8/4p3/8 b"));
+    }
+
+    @Test
+    public void testBestMovesMateInPredictedPlies() throws InvalidMoveException {
+        for (String fen : new String[]{"8/8/8/4k3/8/8/8/R3K3 w", "8/4P3/8/4K3/8/8/8/k7 w", "8/8/8/8/3k4/8/8/3KQ3 b"}) {
+            ChessGame game = Fen.parse(fen + " - - 0 1");
+            Tablebases.Probe start = tablebases.probe(game);
+            assertFalse(start.isDraw(), fen);
+            int plies = 0;
+            while (!game.isInCheckmate(game.getTeamTurn())) {
+                ChessMove move = tablebases.getBestMove(game);
+                assertNotNull(move, fen);
+                game.makeMove(move);
+                plies++;
+            }
+            assertEquals(start.plies(), plies, fen);
+        }
+    }
+
+    @Test
+    public void testWriteOpenAndSearch(@TempDir Path directory) throws IOException {
+        Tablebase table = TablebaseGenerator.generate("KRvK", tablebases, ForkJoinPool.commonPool());
+        Path file = table.write(directory);
+        assertEquals(2L * 64 * 64 * 64, Files.size(file));
+
+        Tablebases opened = Tablebases.open(directory);
+        assertTrue(opened.contains("KRvK"));
+        ChessGame game = Fen.parse("8/8/8/4k3/8/8/8/R3K3 w - - 0 1");
+        assertEquals(tablebases.probe(game), opened.probe(game));
+
+        Search search = new Search();
+        search.setTablebases(opened);
+        SearchResult result = search.search(game, SearchLimits.depth(1));
+        assertEquals(0, result.depth());
+        assertEquals(0, result.nodes());
+        assertEquals((tablebases.probe(game).plies() + 1) / 2, result.mateIn());
+        assertEquals(tablebases.getBestMove(game), result.getBestMove());
+
+        // A mate the fifty-move rule would cut off is left to the search
+        ChessGame late = Fen.parse("8/8/8/4k3/8/8/8/R3K3 w - - 99 1");
+        SearchResult searched = search.search(late, SearchLimits.depth(1));
+        assertEquals(1, searched.depth());
+        assertFalse(searched.isMate());
+    }
+
+    @Test
+    public void testBadFileRejected(@TempDir Path directory) throws IOException {
+        Files.write(directory.resolve("KQvK.tb"), new byte[100]);
+        assertThrows(IOException.class, () -> Tablebases.open(directory));
+        assertThrows(IllegalArgumentException.class, () -> Material.parse("KQRBvK"));
+        assertThrows(IllegalStateException.class,
+                () -> TablebaseGenerator.generate("KPvK", new Tablebases(), ForkJoinPool.commonPool()));
+    }
+
+    private static Tablebases.Probe probe(String fen) {
+        return tablebases.probe(Fen.parse(fen + " - - 0 1"));
+    }
+
+    private static int longestWin(String signature) {
+        Tablebase table = TablebaseGenerator.generate(signature, tablebases, ForkJoinPool.commonPool());
+        int longest = 0;
+        for (int index = 0; index < table.material().size(); index++) {
+            if (Tablebase.isWin(table.value(index))) {
+                longest = Math.max(longest, Tablebase.plies(table.value(index)));
+            }
+        }
+        return longest;
+    }
+}